@@ -1,7 +1,16 @@
+import benchmark.FrameBenchmark;
+import exceptions.MapLoadException;
 import game.Game;
 
+import java.util.Arrays;
+
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws MapLoadException {
+        if (args.length > 0 && args[0].equals("--benchmark")) {
+            // Renders headless and reports frame timings, see FrameBenchmark
+            FrameBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         new Game();
     }
-}
\ No newline at end of file
+}
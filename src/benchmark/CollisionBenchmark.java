@@ -0,0 +1,135 @@
+package benchmark;
+
+import general.Intersection;
+import general.Rectangle;
+import general.Side;
+import general.SweptCollision;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Compares resolving a move of a box against nearby boxes with Rectangle.intersects,
+ * i.e. moving first and pushing the box out afterwards, and with SweptCollision.
+ * Reports the time and allocation per move, and how often a long move passes through a thin wall.
+ *
+ * @author Finn Kiesinger
+ */
+public class CollisionBenchmark {
+    private static final int MOVES = 1_000_000;
+    /**
+     * Number of distinct moves, small enough for their boxes to stay in the cache
+     */
+    private static final int SCENARIOS = 4096;
+    private static final int CANDIDATES = 8;
+    private static final int BOX_SIZE = 36;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        // Each move starts at the origin, with candidate boxes around it as a broadphase would report them.
+        // The moving box does not overlap any of them yet, as it was resolved by the previous move.
+        int[][] boxes = new int[SCENARIOS][CANDIDATES * 4];
+        double[] moveX = new double[SCENARIOS];
+        double[] moveY = new double[SCENARIOS];
+        for (int i = 0; i < SCENARIOS; i++) {
+            for (int j = 0; j < CANDIDATES; j++) {
+                int x, y, width, height;
+                do {
+                    x = random.nextInt(160) - 80;
+                    y = random.nextInt(160) - 80;
+                    width = 8 + random.nextInt(48);
+                    height = 8 + random.nextInt(48);
+                } while (x < BOX_SIZE && x + width > 0 && y < BOX_SIZE && y + height > 0);
+                boxes[i][j * 4] = x;
+                boxes[i][j * 4 + 1] = y;
+                boxes[i][j * 4 + 2] = width;
+                boxes[i][j * 4 + 3] = height;
+            }
+            moveX[i] = random.nextDouble() * 8 - 4;
+            moveY[i] = random.nextDouble() * 8 - 4;
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        SweptCollision solver = new SweptCollision();
+        double checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < MOVES; i++) {
+                checksum += moveWithIntersects(boxes[i % SCENARIOS], moveX[i % SCENARIOS], moveY[i % SCENARIOS]);
+            }
+            long intersectsTime = System.nanoTime() - start;
+            long intersectsAllocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+            allocated = threads.getCurrentThreadAllocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < MOVES; i++) {
+                checksum += moveWithSolver(solver, boxes[i % SCENARIOS], moveX[i % SCENARIOS], moveY[i % SCENARIOS]);
+            }
+            long solverTime = System.nanoTime() - start;
+            long solverAllocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+            System.out.printf("round %d: intersects %6.1f ns %6d B per move, swept %6.1f ns %4d B per move%n", round,
+                    (double) intersectsTime / MOVES, intersectsAllocated / MOVES,
+                    (double) solverTime / MOVES, solverAllocated / MOVES);
+        }
+
+        // Long moves, e.g. after a stall, through a wall 2 pixels thick
+        int[] wall = {BOX_SIZE + 20, -500, 2, 1000};
+        int intersectsPassed = 0;
+        int solverPassed = 0;
+        for (int i = 0; i < 10_000; i++) {
+            double distance = 20 + random.nextDouble() * 200;
+            moveWithIntersects(wall, distance, 0);
+            if (lastX >= wall[0] + wall[2]) {
+                intersectsPassed++;
+            }
+            moveWithSolver(solver, wall, distance, 0);
+            if (solver.getX() >= wall[0] + wall[2]) {
+                solverPassed++;
+            }
+        }
+        System.out.printf("passed through a thin wall in 10000 long moves: intersects %d, swept %d%n",
+                intersectsPassed, solverPassed);
+        System.out.println("checksum " + checksum);
+    }
+
+    private static double lastX;
+
+    /**
+     * Resolves a move like Player did before SweptCollision: move, then push out of each overlapped box.
+     */
+    private static double moveWithIntersects(int[] boxes, double moveX, double moveY) {
+        double x = moveX;
+        double y = moveY;
+        for (int j = 0; j < boxes.length; j += 4) {
+            Rectangle other = new Rectangle(boxes[j], boxes[j + 1], boxes[j + 2], boxes[j + 3]);
+            Rectangle box = new Rectangle((int) x, (int) y, BOX_SIZE, BOX_SIZE);
+            Intersection intersection = box.intersects(other);
+            if (intersection.intersects) {
+                if (intersection.side == Side.LEFT) {
+                    x = other.x + other.width;
+                } else if (intersection.side == Side.RIGHT) {
+                    x = other.x - BOX_SIZE;
+                } else if (intersection.side == Side.TOP) {
+                    y = other.y + other.height;
+                } else if (intersection.side == Side.BOTTOM) {
+                    y = other.y - BOX_SIZE;
+                }
+            }
+        }
+        lastX = x;
+        return x + y;
+    }
+
+    private static double moveWithSolver(SweptCollision solver, int[] boxes, double moveX, double moveY) {
+        solver.begin(0, 0, BOX_SIZE, BOX_SIZE, moveX, moveY);
+        do {
+            for (int j = 0; j < boxes.length; j += 4) {
+                solver.test(boxes[j], boxes[j + 1], boxes[j + 2], boxes[j + 3]);
+            }
+        } while (solver.slide());
+        return solver.getX() + solver.getY();
+    }
+}
@@ -0,0 +1,141 @@
+package benchmark;
+
+import exceptions.MapLoadException;
+import game.Assets;
+import general.Rectangle;
+import general.Vector2;
+import graphics.Level;
+import graphics.Sprite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Updates PlayerBase with 1000, 5000 and 10000 actors wandering around the level, and reports the time
+ * of a level update as p50/p99, including separating overlapping actors, and the number of overlapping pairs.
+ * For comparison also reports the time of testing all pairs of actors for overlap.
+ *
+ * @author Finn Kiesinger
+ */
+public class CrowdBenchmark {
+    private static final int[] ACTOR_COUNTS = {1000, 5000, 10000};
+    private static final int WARMUP_UPDATES = 120;
+    private static final int UPDATES = 600;
+    private static final int ALL_PAIRS_UPDATES = 10;
+    private static final long UPDATE_TIME = 1_000_000_000L / 120;
+
+    public static void main(String[] args) throws MapLoadException {
+        System.setProperty("java.awt.headless", "true");
+        Assets.instance.loadAssets();
+
+        for (int actorCount : ACTOR_COUNTS) {
+            Level level = new Level("PlayerBase");
+            Vector2 size = level.getSize();
+            Random random = new Random(actorCount);
+            List<Sprite> actors = new ArrayList<>();
+            for (int i = 0; i < actorCount; i++) {
+                WanderingActor actor = new WanderingActor(random, size);
+                level.addActor(actor);
+                actors.add(actor);
+            }
+
+            long[] updateTimes = new long[UPDATES];
+            long contacts = 0;
+            long allPairsTime = 0;
+            for (int update = -WARMUP_UPDATES; update < UPDATES; update++) {
+                long start = System.nanoTime();
+                level.update(UPDATE_TIME);
+                long end = System.nanoTime();
+                if (update < 0) {
+                    continue;
+                }
+                updateTimes[update] = end - start;
+                contacts += level.getActorContactCount();
+                if (update < ALL_PAIRS_UPDATES) {
+                    start = System.nanoTime();
+                    countOverlappingPairs(actors);
+                    allPairsTime += System.nanoTime() - start;
+                }
+            }
+
+            Arrays.sort(updateTimes);
+            System.out.printf("%5d actors: update p50 %7.3f ms   p99 %7.3f ms   %5.1f overlapping pairs   all pairs %8.3f ms%n",
+                    actorCount,
+                    FrameBenchmark.percentile(updateTimes, 0.50) / 1e6,
+                    FrameBenchmark.percentile(updateTimes, 0.99) / 1e6,
+                    (double) contacts / UPDATES,
+                    allPairsTime / 1e6 / ALL_PAIRS_UPDATES);
+        }
+    }
+
+    /**
+     * Tests every pair of actors for overlap, as every actor scanning all others would.
+     */
+    private static int countOverlappingPairs(List<Sprite> actors) {
+        int count = actors.size();
+        int[] left = new int[count], top = new int[count], right = new int[count], bottom = new int[count];
+        for (int i = 0; i < count; i++) {
+            Sprite actor = actors.get(i);
+            Rectangle box = actor.getBoundingBox();
+            Vector2 position = actor.getPosition();
+            left[i] = position.x + box.x;
+            top[i] = position.y + box.y;
+            right[i] = left[i] + box.width;
+            bottom[i] = top[i] + box.height;
+        }
+        int pairs = 0;
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (left[i] < right[j] && left[j] < right[i] && top[i] < bottom[j] && top[j] < bottom[i]) {
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * An actor the size of the player that walks in a random direction and picks a new one every few seconds.
+     * It turns around at the border of the level.
+     */
+    private static class WanderingActor extends Sprite {
+        private static final double SPEED = 80;
+
+        private final Random random;
+        private final Vector2 levelSize;
+        private double dx, dy;
+        private long nextTurn = 0;
+
+        WanderingActor(Random random, Vector2 levelSize) {
+            super(List.of(new SpriteInfo("character", 0, 0, 32, 32)));
+            this.random = random;
+            this.levelSize = levelSize;
+            x = random.nextInt(levelSize.x);
+            y = random.nextInt(levelSize.y);
+            addBoundingBox(-6, 6, 12, 12);
+        }
+
+        @Override
+        public void update(long deltaTime) {
+            nextTurn -= deltaTime;
+            if (nextTurn <= 0) {
+                double angle = random.nextDouble() * 2 * Math.PI;
+                dx = Math.cos(angle);
+                dy = Math.sin(angle);
+                nextTurn = 1_000_000_000L + random.nextInt(2_000_000_000);
+            }
+            x += dx * SPEED * deltaTime / 1e9;
+            y += dy * SPEED * deltaTime / 1e9;
+            if (x < 0 || x > levelSize.x) {
+                dx = -dx;
+                x = Math.max(0, Math.min(levelSize.x, x));
+            }
+            if (y < 0 || y > levelSize.y) {
+                dy = -dy;
+                y = Math.max(0, Math.min(levelSize.y, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package benchmark;
+
+import exceptions.MapLoadException;
+import game.Assets;
+import general.Rectangle;
+import general.Vector2;
+import graphics.Level;
+import graphics.Sprite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how long it takes to find the visible sprites of a frame on PlayerBase with 1k, 10k and 100k
+ * placed objects, compared to sorting all sprites and checking each of them against the viewport.
+ * Measured both for a camera jumping to a random viewport every frame and for a camera panning across the level.
+ *
+ * @author Finn Kiesinger
+ */
+public class CullingBenchmark {
+    private static final int[] OBJECT_COUNTS = {1_000, 10_000, 100_000};
+    private static final int FRAMES = 1_000;
+    private static final int VIEWPORT_WIDTH = 1920;
+    private static final int VIEWPORT_HEIGHT = 1080;
+    /**
+     * Distance the panning camera moves per frame, in pixels
+     */
+    private static final int PAN_SPEED = 4;
+
+    public static void main(String[] args) throws MapLoadException {
+        Assets.instance.loadAssets();
+
+        for (int count : OBJECT_COUNTS) {
+            Level level = new Level("PlayerBase");
+            Vector2 size = level.getSize();
+            Random random = new Random(count);
+            List<Sprite> sprites = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                // Sprite positions are in map pixels and scaled by the sprite
+                Sprite sprite = new Sprite("player_house", random.nextInt(size.x / 3), random.nextInt(size.y / 3));
+                sprite.addBoundingBox(4, 38, 72, 42);
+                level.addSprite(sprite);
+                sprites.add(sprite);
+            }
+
+            Rectangle[] jumping = new Rectangle[FRAMES];
+            for (int i = 0; i < FRAMES; i++) {
+                jumping[i] = new Rectangle(random.nextInt(size.x - VIEWPORT_WIDTH),
+                        random.nextInt(size.y - VIEWPORT_HEIGHT), VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+            }
+            Rectangle[] panning = new Rectangle[FRAMES];
+            for (int i = 0; i < FRAMES; i++) {
+                panning[i] = new Rectangle(i * PAN_SPEED, i * PAN_SPEED / 2, VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+            }
+
+            measure(String.format("%,d objects, jumping", count), level, sprites, jumping);
+            measure(String.format("%,d objects, panning", count), level, sprites, panning);
+        }
+    }
+
+    private static void measure(String name, Level level, List<Sprite> sprites, Rectangle[] viewports) {
+        int visible = 0;
+        long gridTime = 0;
+        long scanTime = 0;
+        for (int run = 0; run < 2; run++) {
+            // First run is warm up
+            gridTime = 0;
+            scanTime = 0;
+            visible = 0;
+            for (Rectangle viewport : viewports) {
+                long start = System.nanoTime();
+                visible += level.getVisibleSprites(viewport).size();
+                gridTime += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                scan(sprites, viewport);
+                scanTime += System.nanoTime() - start;
+            }
+        }
+        System.out.printf("%s, %d visible on average: grid %.3f ms, sort and scan %.3f ms per frame%n",
+                name, visible / FRAMES, gridTime / 1e6 / FRAMES, scanTime / 1e6 / FRAMES);
+    }
+
+    /**
+     * Finds the visible sprites the way it was done before the grid: sort all of them, then check each one.
+     */
+    private static List<Sprite> scan(List<Sprite> sprites, Rectangle viewport) {
+        List<Sprite> result = new ArrayList<>();
+        for (Sprite sprite : sprites.stream().sorted().toList()) {
+            Vector2 position = sprite.getPosition();
+            Vector2 spriteSize = sprite.getSize();
+            if (position.x + spriteSize.x > viewport.x && position.x < viewport.x + viewport.width
+                    && position.y + spriteSize.y > viewport.y && position.y < viewport.y + viewport.height) {
+                result.add(sprite);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package benchmark;
+
+import exceptions.MapLoadException;
+import game.Assets;
+import general.Rectangle;
+import general.Vector2;
+import graphics.Camera;
+import graphics.Level;
+import graphics.OffscreenRenderer;
+import graphics.Player;
+import lighting.DirectionalLight;
+import lighting.Lighting;
+
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Renders PlayerBase headless into an offscreen image while the camera moves around the level,
+ * and reports per-frame timings of layers, sprites, light compositing and the light map update as p50/p99.
+ * Also reports how many bytes the render pass allocates per frame.
+ * <p>
+ * Usage: FrameBenchmark [width height [frames]], defaults to 1920 1080 600.
+ *
+ * @author Finn Kiesinger
+ */
+public class FrameBenchmark {
+    private static final int WARMUP_FRAMES = 120;
+    private static final long FRAME_TIME = 16_666_667L;
+    private static final int LIGHTING_RESOLUTION = 10;
+    private static final int LIGHTING_MARGIN = 320;
+
+    public static void main(String[] args) throws MapLoadException {
+        System.setProperty("java.awt.headless", "true");
+        int width = args.length >= 2 ? Integer.parseInt(args[0]) : 1920;
+        int height = args.length >= 2 ? Integer.parseInt(args[1]) : 1080;
+        int frames = args.length >= 3 ? Integer.parseInt(args[2]) : 600;
+
+        Assets.instance.loadAssets();
+        Level level = new Level("PlayerBase");
+        Player player = new Player(level.getPlayerSpawn());
+        player.setLevel(level);
+        level.addActor(player);
+        Vector2 size = level.getSize();
+
+        Lighting.instance.setResolution(LIGHTING_RESOLUTION);
+        Lighting.instance.setViewportScoped(true, LIGHTING_MARGIN);
+        Lighting.instance.addLight(new DirectionalLight(new Color(255, 255, 255, 100), 0.5));
+
+        OffscreenRenderer renderer = new OffscreenRenderer(level, width, height);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long[] layerTimes = new long[frames];
+        long[] spriteTimes = new long[frames];
+        long[] lightTimes = new long[frames];
+        long[] renderTimes = new long[frames];
+        long[] lightMapTimes = new long[frames];
+        long[] allocations = new long[frames];
+
+        for (int frame = -WARMUP_FRAMES; frame < frames; frame++) {
+            level.update(FRAME_TIME);
+            Lighting.instance.update(FRAME_TIME);
+
+            // One round trip along an ellipse through the level
+            double angle = 2 * Math.PI * Math.max(0, frame) / frames;
+            renderer.setCameraPosition(new Vector2(
+                    (int) (size.x / 2 + (size.x - width) / 2 * Math.cos(angle)),
+                    (int) (size.y / 2 + (size.y - height) / 2 * Math.sin(angle))
+            ));
+            Rectangle viewport = Camera.main.getViewport();
+            Lighting.instance.setViewport(viewport.x, viewport.y, viewport.width, viewport.height);
+
+            long start = System.nanoTime();
+            Lighting.instance.updateLightMap(size.x, size.y);
+            long lightMapUpdated = System.nanoTime();
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            renderer.render();
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+            long rendered = System.nanoTime();
+
+            if (frame >= 0) {
+                layerTimes[frame] = renderer.getLayerTime();
+                spriteTimes[frame] = renderer.getSpriteTime();
+                lightTimes[frame] = renderer.getLightTime();
+                renderTimes[frame] = rendered - lightMapUpdated;
+                lightMapTimes[frame] = lightMapUpdated - start;
+                allocations[frame] = allocated;
+            }
+        }
+        renderer.dispose();
+
+        System.out.printf("PlayerBase at %dx%d, %d frames%n", width, height, frames);
+        report("layers", layerTimes);
+        report("sprites", spriteTimes);
+        report("light compositing", lightTimes);
+        report("render total", renderTimes);
+        report("light map update", lightMapTimes);
+        Arrays.sort(allocations);
+        System.out.printf("%-18s p50 %8d B   max %8d B%n", "render allocation", allocations[frames / 2], allocations[frames - 1]);
+    }
+
+    private static void report(String name, long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-18s p50 %8.3f ms   p99 %8.3f ms%n", name,
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6);
+    }
+
+    /**
+     * Returns a percentile of sorted values, using the nearest rank.
+     */
+    static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import exceptions.MapLoadException;
+import game.Assets;
+import general.Rectangle;
+import general.Vector2;
+import graphics.Layer;
+import graphics.Level;
+
+import java.util.Random;
+
+/**
+ * Measures how long it takes to load a level and to create the images of all its layers.
+ * Runs on PlayerBase and on a synthetic 1000x1000 tile layer using the tiles of PlayerBase.
+ *
+ * @author Finn Kiesinger
+ */
+public class LevelLoadBenchmark {
+    private static final int RUNS = 5;
+    private static final int SYNTHETIC_SIZE = 1000;
+
+    public static void main(String[] args) throws MapLoadException {
+        Assets.instance.loadAssets();
+
+        // Warm up
+        Level warmup = new Level("PlayerBase");
+        warmup.prepare(new Rectangle(0, 0, warmup.getSize().x, warmup.getSize().y));
+
+        long bestLoad = Long.MAX_VALUE;
+        long bestPrepare = Long.MAX_VALUE;
+        Level level = null;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            level = new Level("PlayerBase");
+            long loaded = System.nanoTime();
+            Vector2 size = level.getSize();
+            level.prepare(new Rectangle(0, 0, size.x, size.y));
+            long prepared = System.nanoTime();
+            bestLoad = Math.min(bestLoad, loaded - start);
+            bestPrepare = Math.min(bestPrepare, prepared - loaded);
+        }
+        System.out.printf("PlayerBase: load %.1f ms, all chunks %.1f ms%n", bestLoad / 1e6, bestPrepare / 1e6);
+
+        Layer synthetic = createSyntheticLayer(level.getLayers().get(0));
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            best = Math.min(best, prepareBandByBand(synthetic));
+        }
+        System.out.printf("Synthetic %dx%d tiles: all chunks %.1f ms%n", SYNTHETIC_SIZE, SYNTHETIC_SIZE, best / 1e6);
+    }
+
+    /**
+     * Creates a layer with random tiles taken from the given layer.
+     */
+    private static Layer createSyntheticLayer(Layer template) {
+        Vector2 size = template.getSize();
+        int tileWidth = size.x / template.getWidth();
+        int tileHeight = size.y / template.getHeight();
+        Layer layer = new Layer(0, "Synthetic", SYNTHETIC_SIZE, SYNTHETIC_SIZE, tileWidth, tileHeight, template.getSource());
+        Random random = new Random(1);
+        for (int i = 0; i < SYNTHETIC_SIZE * SYNTHETIC_SIZE; i++) {
+            layer.addTile(template.getTile(random.nextInt(template.getWidth()), random.nextInt(template.getHeight())));
+        }
+        return layer;
+    }
+
+    /**
+     * Creates all chunk images of a layer one row of chunks at a time,
+     * since all of them would not fit into memory at once.
+     *
+     * @return the time it took, in nanoseconds
+     */
+    private static long prepareBandByBand(Layer layer) {
+        Vector2 size = layer.getSize();
+        int bandHeight = Layer.CHUNK_SIZE * (size.y / layer.getHeight());
+        long time = 0;
+        for (int y = 0; y < size.y; y += bandHeight) {
+            long start = System.nanoTime();
+            layer.prepareChunks(new Rectangle(0, y, size.x, bandHeight));
+            time += System.nanoTime() - start;
+            layer.releaseChunks();
+        }
+        return time;
+    }
+}
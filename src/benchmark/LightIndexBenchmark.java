@@ -0,0 +1,83 @@
+package benchmark;
+
+import lighting.DirectionalLight;
+import lighting.Light;
+import lighting.Lighting;
+import lighting.PointLight;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how long recomputing the light map around a 1920x1080 viewport takes, with 16 lanterns and
+ * a floodlight inside it, while more and more lanterns are placed elsewhere in a large level.
+ * Tiles only evaluate the lights reaching them, so the time should stay the same no matter how many lights
+ * the level has.
+ *
+ * @author Finn Kiesinger
+ */
+public class LightIndexBenchmark {
+    private static final int[] LIGHT_COUNTS = {16, 256, 4_096, 65_536};
+    private static final int LOCAL_LIGHTS = 16;
+    private static final int LEVEL_SIZE = 64_000;
+    private static final int VIEWPORT_X = 1_000;
+    private static final int VIEWPORT_Y = 1_000;
+    private static final int VIEWPORT_WIDTH = 1920;
+    private static final int VIEWPORT_HEIGHT = 1080;
+    private static final int MARGIN = 320;
+    private static final int RADIUS = 250;
+    private static final int RESOLUTION = 1;
+    private static final int RUNS = 20;
+
+    public static void main(String[] args) {
+        Lighting lighting = Lighting.instance;
+        lighting.setResolution(RESOLUTION);
+        lighting.setViewportScoped(true, MARGIN);
+        lighting.setViewport(VIEWPORT_X, VIEWPORT_Y, VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+        lighting.addLight(new DirectionalLight(new Color(255, 255, 255, 100), 0.5));
+        // Reaches every tile of the lit area, changing it recomputes all of them
+        PointLight floodlight = new PointLight(Color.WHITE, 0.2, VIEWPORT_WIDTH + 2 * MARGIN,
+                VIEWPORT_X + VIEWPORT_WIDTH / 2, VIEWPORT_Y + VIEWPORT_HEIGHT / 2);
+        lighting.addLight(floodlight);
+
+        Random random = new Random(3);
+        List<Light> lights = new ArrayList<>();
+        // Lanterns reaching the lit area, the same for every light count
+        for (int i = 0; i < LOCAL_LIGHTS; i++) {
+            lights.add(new PointLight(Color.ORANGE, 0.8, RADIUS,
+                    VIEWPORT_X + random.nextInt(VIEWPORT_WIDTH), VIEWPORT_Y + random.nextInt(VIEWPORT_HEIGHT)));
+        }
+        lights.forEach(lighting::addLight);
+
+        for (int count : LIGHT_COUNTS) {
+            // Lanterns too far away to reach the lit area
+            while (lights.size() < count) {
+                int x = random.nextInt(LEVEL_SIZE);
+                int y = random.nextInt(LEVEL_SIZE);
+                if (x < VIEWPORT_X + VIEWPORT_WIDTH + 2 * (MARGIN + RADIUS) + 64
+                        && y < VIEWPORT_Y + VIEWPORT_HEIGHT + 2 * (MARGIN + RADIUS) + 64) {
+                    continue;
+                }
+                PointLight light = new PointLight(Color.ORANGE, 0.8, RADIUS, x, y);
+                lights.add(light);
+                lighting.addLight(light);
+            }
+
+            long[] times = new long[RUNS];
+            for (int run = -RUNS; run < RUNS; run++) {
+                floodlight.setStrength(run % 2 == 0 ? 0.2 : 0.3);
+                long start = System.nanoTime();
+                lighting.updateLightMap(LEVEL_SIZE, LEVEL_SIZE);
+                if (run >= 0) {
+                    times[run] = System.nanoTime() - start;
+                }
+            }
+            Arrays.sort(times);
+            System.out.printf("%6d lights in the level: light map update p50 %8.3f ms   p99 %8.3f ms%n", count,
+                    FrameBenchmark.percentile(times, 0.50) / 1e6, FrameBenchmark.percentile(times, 0.99) / 1e6);
+        }
+    }
+}
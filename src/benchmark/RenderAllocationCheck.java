@@ -0,0 +1,112 @@
+package benchmark;
+
+import exceptions.MapLoadException;
+import game.Assets;
+import general.Rectangle;
+import general.Vector2;
+import graphics.Camera;
+import graphics.Level;
+import graphics.OffscreenRenderer;
+import graphics.Player;
+import lighting.DirectionalLight;
+import lighting.Lighting;
+
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Checks that rendering PlayerBase allocates nothing in our own draw code once it reached a steady state.
+ * The camera circles around the middle of the level, close enough that no chunks are streamed in or evicted.
+ * The first circle fills all caches, during the second every frame is rendered twice:
+ * onto a {@link NullGraphics}, which only runs our draw code, and into the offscreen image.
+ * The difference is what Java2D allocates while blitting, reported separately so that it cannot hide
+ * an allocation of our own.
+ * <p>
+ * Exits with status 1 if any frame allocated in our own draw code.
+ * Usage: RenderAllocationCheck [width height [frames]], defaults to 1920 1080 600.
+ *
+ * @author Finn Kiesinger
+ */
+public class RenderAllocationCheck {
+    private static final long FRAME_TIME = 16_666_667L;
+    private static final int LIGHTING_RESOLUTION = 10;
+    private static final int LIGHTING_MARGIN = 320;
+    /**
+     * Radius of the circle the camera moves on, in pixels
+     */
+    private static final int CAMERA_RADIUS = 200;
+
+    public static void main(String[] args) throws MapLoadException {
+        System.setProperty("java.awt.headless", "true");
+        int width = args.length >= 2 ? Integer.parseInt(args[0]) : 1920;
+        int height = args.length >= 2 ? Integer.parseInt(args[1]) : 1080;
+        int frames = args.length >= 3 ? Integer.parseInt(args[2]) : 600;
+
+        Assets.instance.loadAssets();
+        Level level = new Level("PlayerBase");
+        Player player = new Player(level.getPlayerSpawn());
+        player.setLevel(level);
+        level.addActor(player);
+        Vector2 size = level.getSize();
+
+        Lighting.instance.setResolution(LIGHTING_RESOLUTION);
+        Lighting.instance.setViewportScoped(true, LIGHTING_MARGIN);
+        Lighting.instance.addLight(new DirectionalLight(new Color(255, 255, 255, 100), 0.5));
+
+        OffscreenRenderer renderer = new OffscreenRenderer(level, width, height);
+        NullGraphics nullGraphics = new NullGraphics();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long[] ownAllocations = new long[frames];
+        long[] blitAllocations = new long[frames];
+        int allocatingFrames = 0;
+
+        for (int frame = -frames; frame < frames; frame++) {
+            level.update(FRAME_TIME);
+            Lighting.instance.update(FRAME_TIME);
+
+            double angle = 2 * Math.PI * Math.floorMod(frame, frames) / frames;
+            renderer.setCameraPosition(new Vector2(
+                    (int) (size.x / 2 + CAMERA_RADIUS * Math.cos(angle)),
+                    (int) (size.y / 2 + CAMERA_RADIUS * Math.sin(angle))
+            ));
+            Rectangle viewport = Camera.main.getViewport();
+            Lighting.instance.setViewport(viewport.x, viewport.y, viewport.width, viewport.height);
+            Lighting.instance.updateLightMap(size.x, size.y);
+
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            renderer.render(nullGraphics);
+            long own = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+            allocated = threads.getCurrentThreadAllocatedBytes();
+            renderer.render();
+            long total = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+            if (frame >= 0) {
+                ownAllocations[frame] = own;
+                blitAllocations[frame] = Math.max(0, total - own);
+                if (own > 0) {
+                    allocatingFrames++;
+                }
+            }
+        }
+        renderer.dispose();
+
+        System.out.printf("PlayerBase at %dx%d, %d frames%n", width, height, frames);
+        report("own draw code", ownAllocations);
+        report("Java2D blit", blitAllocations);
+        if (allocatingFrames > 0) {
+            System.out.printf("FAILED: own draw code allocated in %d of %d frames%n", allocatingFrames, frames);
+            System.exit(1);
+        }
+        System.out.println("OK: own draw code allocated nothing");
+    }
+
+    private static void report(String name, long[] allocations) {
+        long[] sorted = allocations.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-14s p50 %8d B   p99 %8d B   max %8d B%n", name, FrameBenchmark.percentile(sorted, 0.50),
+                FrameBenchmark.percentile(sorted, 0.99), sorted[sorted.length - 1]);
+    }
+}
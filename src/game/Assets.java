@@ -10,6 +10,7 @@ import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
 
 import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,6 +25,21 @@ public class Assets {
 
     private final Map<String, BufferedImage> images = new HashMap<>();
     private final Map<String, SpriteData> sprites = new HashMap<>();
+    private final Map<ScaledImageKey, TextureAtlas.Region> scaledImages = new HashMap<>();
+    /**
+     * Merged animation frames, by the images they were merged from
+     */
+    private final Map<List<TextureAtlas.Region>, TextureAtlas.Region> mergedImages = new HashMap<>();
+    /**
+     * Atlas of all scaled images and of images created from them, e.g. animation frames
+     */
+    private final TextureAtlas atlas = new TextureAtlas(true, Global.PACK_SPRITES);
+
+    /**
+     * Identifies a scaled part of a loaded image
+     */
+    private record ScaledImageKey(String name, int x, int y, int width, int height, double scale) {
+    }
 
     private Assets() {}
 
@@ -151,6 +167,77 @@ public class Assets {
         return images.get(name);
     }
 
+    /**
+     * Returns a scaled copy of a loaded image.
+     *
+     * @see #getScaledImage(String, int, int, int, int, double)
+     */
+    public TextureAtlas.Region getScaledImage(String name, double scale) {
+        BufferedImage image = images.get(name);
+        return getScaledImage(name, 0, 0, image.getWidth(), image.getHeight(), scale);
+    }
+
+    /**
+     * Returns a scaled copy of a part of a loaded image.
+     * Scaled images are created once and shared, so all sprites showing the same image share its pixels.
+     * They are packed into the atlas, whose pages are compatible with the screen.
+     *
+     * @param name   name of the loaded image
+     * @param x      x coordinate of the part, in pixels of the loaded image
+     * @param y      y coordinate of the part, in pixels of the loaded image
+     * @param width  width of the part, in pixels of the loaded image
+     * @param height height of the part, in pixels of the loaded image
+     * @param scale  factor the part is scaled with
+     * @return the region of the atlas holding the scaled image
+     */
+    public synchronized TextureAtlas.Region getScaledImage(String name, int x, int y, int width, int height, double scale) {
+        return scaledImages.computeIfAbsent(new ScaledImageKey(name, x, y, width, height, scale), key -> {
+            int scaledWidth = (int) (width * scale);
+            int scaledHeight = (int) (height * scale);
+            Image scaled = images.get(name)
+                    .getSubimage(x, y, width, height)
+                    .getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
+            BufferedImage image = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.drawImage(scaled, 0, 0, null);
+            graphics.dispose();
+            return atlas.add(image);
+        });
+    }
+
+    /**
+     * Returns an image of the given images drawn on top of each other, e.g. the layers of an animation frame.
+     * Merged images are created once and shared, so every animation made of the same layers reuses them.
+     *
+     * @param layers the images to merge, from bottom to top, as returned by getScaledImage
+     * @return the region of the atlas holding the merged image
+     */
+    public synchronized TextureAtlas.Region getMergedImage(List<TextureAtlas.Region> layers) {
+        // Scaled images are shared, so equal layers are the same regions
+        return mergedImages.computeIfAbsent(List.copyOf(layers), key -> {
+            BufferedImage image = new BufferedImage(key.get(0).width, key.get(0).height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = image.createGraphics();
+            for (TextureAtlas.Region layer : key) {
+                layer.draw(graphics, 0, 0);
+            }
+            graphics.dispose();
+            return atlas.add(image);
+        });
+    }
+
+    /**
+     * Creates a translucent image in the format of the screen, or a plain ARGB image if there is no screen.
+     */
+    public static BufferedImage createCompatibleImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice()
+                .getDefaultConfiguration()
+                .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
     public SpriteData getSprite(String name) {
         return sprites.get(name);
     }
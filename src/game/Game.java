@@ -1,6 +1,7 @@
 package game;
 
 import exceptions.MapLoadException;
+import general.Rectangle;
 import graphics.Camera;
 import graphics.Level;
 import graphics.MainWindow;
@@ -11,6 +12,7 @@ import lighting.LightingThread;
 
 import java.awt.*;
 import java.awt.event.KeyEvent;
+import java.util.concurrent.locks.LockSupport;
 
 public class Game {
     private final MainWindow window;
@@ -21,6 +23,30 @@ public class Game {
 
     private boolean day = true;
 
+    /**
+     * Level pixels per light map sample for each lighting quality: full, quarter tile and tile
+     */
+    private static final int[] LIGHTING_RESOLUTIONS = {1, 10, 40};
+    private int lightingQuality = 1;
+    /**
+     * Level pixels lit around the viewport
+     */
+    private static final int LIGHTING_MARGIN = 320;
+    /**
+     * Length of one simulation step, in nanoseconds. The simulation runs at 120 updates per second
+     * no matter how fast frames are drawn.
+     */
+    private static final long UPDATE_TIME = 1_000_000_000L / 120;
+    /**
+     * Shortest time between two drawn frames, in nanoseconds
+     */
+    private static final long FRAME_TIME = 1_000_000_000L / 120;
+    /**
+     * Most time simulated after a single frame, in nanoseconds. After a longer stall the game slows down
+     * instead of running many updates in a row and falling behind further.
+     */
+    private static final long MAX_FRAME_TIME = 250_000_000L;
+
     public Game() {
         window = new MainWindow();
         Assets.instance.loadAssets();
@@ -36,6 +62,7 @@ public class Game {
     private void startGameLoop() {
         boolean quit = false;
         Camera.initialize(100, 100);
+        Camera.main.setScreenSize(window.getWidth(), window.getHeight());
         Level level = null;
 
         try {
@@ -47,18 +74,28 @@ public class Game {
         assert level != null;
 
         // Setup Light
+        Lighting.instance.setResolution(LIGHTING_RESOLUTIONS[lightingQuality]);
         sun = new DirectionalLight(new Color(255, 255, 255, 100), sunStrength);
         Lighting.instance.addLight(sun);
-        lightingThread.start();
 
         // Setup Player
         Player player = new Player(level.getPlayerSpawn());
         player.setLevel(level);
         level.addActor(player);
+        Camera.main.setPosition(player.getPosition());
+
+        // Light only the area around the camera, starting where the player spawns
+        Rectangle startViewport = Camera.main.getViewport();
+        Lighting.instance.setViewportScoped(true, LIGHTING_MARGIN);
+        Lighting.instance.setViewport(startViewport.x, startViewport.y, startViewport.width, startViewport.height);
+        lightingThread.start();
+        level.prepare(Camera.main.getViewport());
         window.setLevel(level);
         window.update(0);
 
         long lastTime = System.nanoTime();
+        long nextFrameTime = lastTime;
+        long unsimulatedTime = 0;
 
         while (!quit) {
             if (Input.instance.isKeyHeld(KeyEvent.VK_ESCAPE)) {
@@ -101,23 +138,45 @@ public class Game {
             if (Input.instance.wasKeyPressed(KeyEvent.VK_T)) {
                 day = !day;
             }
+            if (Input.instance.wasKeyPressed(KeyEvent.VK_L)) {
+                lightingQuality = (lightingQuality + 1) % LIGHTING_RESOLUTIONS.length;
+                Lighting.instance.setResolution(LIGHTING_RESOLUTIONS[lightingQuality]);
+            }
             player.stopMoving(!isMovingHorizontal, !isMovingVertical);
 
             long currentTime = System.nanoTime();
-            long deltaTime = currentTime - lastTime;
-            update(deltaTime);
+            unsimulatedTime += Math.min(currentTime - lastTime, MAX_FRAME_TIME);
             lastTime = currentTime;
+            while (unsimulatedTime >= UPDATE_TIME) {
+                update(UPDATE_TIME);
+                unsimulatedTime -= UPDATE_TIME;
+            }
+            level.interpolate((double) unsimulatedTime / UPDATE_TIME);
 
-            Camera.main.setPosition(player.getPosition());
+            Camera.main.setPosition(player.getDrawPosition());
+            Rectangle viewport = Camera.main.getViewport();
+            Lighting.instance.setViewport(viewport.x, viewport.y, viewport.width, viewport.height);
 
             window.draw();
             Input.instance.beginNewFrame();
-            try {
-                Thread.sleep(8 - Math.min(8, deltaTime / 1000000));
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            nextFrameTime = waitForFrame(nextFrameTime);
+        }
+    }
+
+    /**
+     * Waits until the next frame is due. Frames that were missed are skipped instead of drawn in a burst.
+     *
+     * @param frameTime time the next frame is due at, as of System.nanoTime
+     * @return time the frame after it is due at
+     */
+    private static long waitForFrame(long frameTime) {
+        long now = System.nanoTime();
+        // Parking may return early, e.g. on spurious wakeups
+        while (now < frameTime) {
+            LockSupport.parkNanos(frameTime - now);
+            now = System.nanoTime();
         }
+        return Math.max(frameTime + FRAME_TIME, now);
     }
 
     double lerp(double a, double b, double f) {
@@ -128,5 +187,6 @@ public class Game {
         window.update(deltaTime);
         sunStrength = lerp(sunStrength, day ? 1.0 : 0.5, 0.1 * deltaTime / 1e9);
         sun.setStrength(sunStrength);
+        Lighting.instance.update(deltaTime);
     }
 }
@@ -0,0 +1,140 @@
+package game;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TextureAtlas class.
+ * Packs many small images into a few large pages, so that drawing them uses few image objects
+ * that Java2D can keep cached, instead of one image per sprite, frame or tile.
+ * Images are packed into rows as they are added. An image larger than a page gets a page of its own.
+ * An atlas that does not pack gives every image a page of its own, which is then drawn as a whole.
+ *
+ * @author Finn Kiesinger
+ */
+public class TextureAtlas {
+    /**
+     * Width and height of a page, in pixels
+     */
+    public static final int PAGE_SIZE = 2048;
+
+    private final boolean compatible;
+    private final boolean packed;
+    private final List<BufferedImage> pages = new ArrayList<>();
+    private BufferedImage page = null;
+    private int rowX, rowY, rowHeight;
+
+    /**
+     * @param compatible whether pages are compatible with the screen, for images that are drawn.
+     *                   Otherwise pages are ARGB, for images whose pixels are copied.
+     */
+    public TextureAtlas(boolean compatible) {
+        this(compatible, true);
+    }
+
+    /**
+     * @param compatible whether pages are compatible with the screen, for images that are drawn.
+     *                   Otherwise pages are ARGB, for images whose pixels are copied.
+     * @param packed     whether images share pages. Otherwise every image gets a page of its own.
+     */
+    public TextureAtlas(boolean compatible, boolean packed) {
+        this.compatible = compatible;
+        this.packed = packed;
+    }
+
+    /**
+     * Copies an image into the atlas.
+     *
+     * @param image the image to add
+     * @return the region of the atlas the image was copied to
+     */
+    public synchronized Region add(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (!packed || width > PAGE_SIZE || height > PAGE_SIZE) {
+            BufferedImage ownPage = createPage(width, height);
+            copy(image, ownPage, 0, 0);
+            return new Region(ownPage, 0, 0, width, height);
+        }
+
+        if (page != null && rowX + width > PAGE_SIZE) {
+            rowX = 0;
+            rowY += rowHeight;
+            rowHeight = 0;
+        }
+        if (page == null || rowY + height > PAGE_SIZE) {
+            page = createPage(PAGE_SIZE, PAGE_SIZE);
+            rowX = 0;
+            rowY = 0;
+            rowHeight = 0;
+        }
+        copy(image, page, rowX, rowY);
+        Region region = new Region(page, rowX, rowY, width, height);
+        rowX += width;
+        rowHeight = Math.max(rowHeight, height);
+        return region;
+    }
+
+    /**
+     * Returns the number of pages, including pages of images that did not fit on a regular page.
+     */
+    public synchronized int getPageCount() {
+        return pages.size();
+    }
+
+    private BufferedImage createPage(int width, int height) {
+        BufferedImage page = compatible
+                ? Assets.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        pages.add(page);
+        return page;
+    }
+
+    private static void copy(BufferedImage image, BufferedImage page, int x, int y) {
+        Graphics2D graphics = page.createGraphics();
+        graphics.setComposite(AlphaComposite.Src);
+        graphics.drawImage(image, x, y, null);
+        graphics.dispose();
+    }
+
+    /**
+     * A part of a page of an atlas that holds one image.
+     */
+    public static class Region {
+        private final BufferedImage page;
+        public final int x, y, width, height;
+
+        private Region(BufferedImage page, int x, int y, int width, int height) {
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Returns the page the region is on. Its pixels must not be modified.
+         */
+        public BufferedImage getPage() {
+            return page;
+        }
+
+        /**
+         * Draws the image of the region, unscaled.
+         *
+         * @param graphics The graphics object to draw on.
+         * @param x        x coordinate to draw at
+         * @param y        y coordinate to draw at
+         */
+        public void draw(Graphics2D graphics, int x, int y) {
+            if (width == page.getWidth() && height == page.getHeight()) {
+                graphics.drawImage(page, x, y, null);
+                return;
+            }
+            graphics.drawImage(page, x, y, x + width, y + height,
+                    this.x, this.y, this.x + width, this.y + height, null);
+        }
+    }
+}
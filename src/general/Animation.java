@@ -1,10 +1,9 @@
 package general;
 
 import game.Assets;
+import game.TextureAtlas;
 import graphics.Sprite;
 
-import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,7 +32,7 @@ public class Animation {
     /**
      * List of frames
      */
-    private final List<Image> frames = new ArrayList<>();
+    private final List<TextureAtlas.Region> frames = new ArrayList<>();
     /**
      * Current frame
      */
@@ -61,36 +60,40 @@ public class Animation {
         this.loop = loop;
         boolean isSpriteInfo = layers.get(0).get(0) instanceof Sprite.SpriteInfo;
 
-        List<List<Image>> mergeImages = new ArrayList<>();
+        List<List<TextureAtlas.Region>> mergeImages = new ArrayList<>();
 
         if (isSpriteInfo) {
             for (List<?> sprites : layers) {
-                List<Image> images = new ArrayList<>();
-                sprites.forEach(spriteInfo -> images.add(Assets.instance
-                        .getImage(((Sprite.SpriteInfo) spriteInfo).name)
-                        .getSubimage(((Sprite.SpriteInfo) spriteInfo).x, ((Sprite.SpriteInfo) spriteInfo).y, ((Sprite.SpriteInfo) spriteInfo).width, ((Sprite.SpriteInfo) spriteInfo).height)
-                        .getScaledInstance((int) (((Sprite.SpriteInfo) spriteInfo).width * Global.SPRITE_SCALE), (int) (((Sprite.SpriteInfo) spriteInfo).height * Global.SPRITE_SCALE), Image.SCALE_SMOOTH)));
+                List<TextureAtlas.Region> images = new ArrayList<>();
+                sprites.forEach(sprite -> {
+                    Sprite.SpriteInfo spriteInfo = (Sprite.SpriteInfo) sprite;
+                    images.add(Assets.instance.getScaledImage(spriteInfo.name,
+                            spriteInfo.x, spriteInfo.y, spriteInfo.width, spriteInfo.height, Global.SPRITE_SCALE));
+                });
                 mergeImages.add(images);
             }
         } else {
             for (List<?> sprites : layers) {
-                List<Image> images = new ArrayList<>();
-                sprites.forEach(spriteInfo -> {
-                    Image image = Assets.instance.getImage((String) spriteInfo);
-                    images.add(image.getScaledInstance((int) (image.getWidth(null) * Global.SPRITE_SCALE), (int) (image.getHeight(null) * Global.SPRITE_SCALE), Image.SCALE_SMOOTH));
-                });
+                List<TextureAtlas.Region> images = new ArrayList<>();
+                sprites.forEach(imageName -> images.add(Assets.instance.getScaledImage((String) imageName, Global.SPRITE_SCALE)));
                 mergeImages.add(images);
             }
         }
 
+        if (mergeImages.size() == 1) {
+            // Nothing to merge, share the scaled images
+            frames.addAll(mergeImages.get(0));
+            this.cancel = true;
+            return;
+        }
+
+        List<TextureAtlas.Region> frameLayers = new ArrayList<>();
         for (int i = 0; i < frameCount; i++) {
-            BufferedImage image = new BufferedImage(mergeImages.get(0).get(i).getWidth(null), mergeImages.get(0).get(i).getHeight(null), BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g = image.createGraphics();
-            for (List<Image> images : mergeImages) {
-                g.drawImage(images.get(i), 0, 0, null);
+            frameLayers.clear();
+            for (List<TextureAtlas.Region> images : mergeImages) {
+                frameLayers.add(images.get(i));
             }
-            g.dispose();
-            frames.add(image);
+            frames.add(Assets.instance.getMergedImage(frameLayers));
         }
         this.cancel = true;
     }
@@ -125,7 +128,7 @@ public class Animation {
         return name;
     }
 
-    public Image getCurrentFrame() {
+    public TextureAtlas.Region getCurrentFrame() {
         return frames.get(currentFrame);
     }
 
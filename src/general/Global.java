@@ -4,4 +4,10 @@ public class Global {
     public static final String fileSeparator = System.getProperty("file.separator");
 
     public static final double SPRITE_SCALE = 2.5;
+
+    /**
+     * Whether sprites and animation frames are packed into shared atlas pages instead of one image each.
+     * Off by default, as Java2D's software pipeline draws separate images faster. Set -DpackSprites=true to enable.
+     */
+    public static final boolean PACK_SPRITES = Boolean.getBoolean("packSprites");
 }
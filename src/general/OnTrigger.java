@@ -1,5 +1,32 @@
 package general;
 
+import graphics.Sprite;
+
+/**
+ * Callbacks of a trigger. A sprite enters a trigger on the first update its bounding box overlaps it,
+ * stays in it on every later update it still does, and exits it on the first update it no longer does.
+ */
 public interface OnTrigger {
-    void trigger();
+    /**
+     * Called when a sprite starts to overlap the trigger.
+     *
+     * @param sprite the sprite that entered the trigger
+     */
+    void onEnter(Sprite sprite);
+
+    /**
+     * Called on every update after the sprite entered, while it still overlaps the trigger.
+     *
+     * @param sprite the sprite in the trigger
+     */
+    default void onStay(Sprite sprite) {
+    }
+
+    /**
+     * Called when a sprite stops overlapping the trigger.
+     *
+     * @param sprite the sprite that left the trigger
+     */
+    default void onExit(Sprite sprite) {
+    }
 }
@@ -0,0 +1,216 @@
+package general;
+
+/**
+ * SweptCollision class.
+ * Moves a box along a displacement and stops it at the first box it would hit, instead of moving it first
+ * and pushing it out afterwards, so fast boxes cannot pass through thin walls.
+ * After a hit the box slides along the hit surface with the rest of its displacement.
+ * <p>
+ * Usage, for one move:
+ * <pre>
+ * solver.begin(x, y, width, height, dx, dy);
+ * do {
+ *     for (each box near the remaining path) solver.test(boxX, boxY, boxWidth, boxHeight);
+ * } while (solver.slide());
+ * </pre>
+ * Only uses primitive math and can be reused, so it does not allocate.
+ *
+ * @author Finn Kiesinger
+ */
+public class SweptCollision {
+    /**
+     * Most hits resolved per move. Each hit removes one axis of the displacement, so two are enough,
+     * one more allows for rounding.
+     */
+    private static final int MAX_HITS = 3;
+
+    private double x, y;
+    private int width, height;
+    private double dx, dy;
+    private int hits;
+    /**
+     * Area the remaining displacement sweeps
+     */
+    private double sweepLeft, sweepTop, sweepRight, sweepBottom;
+
+    // Earliest hit of the current pass
+    private double hitTime;
+    private int normalX, normalY;
+
+    /**
+     * Starts a move.
+     *
+     * @param x      x coordinate of the box
+     * @param y      y coordinate of the box
+     * @param width  width of the box
+     * @param height height of the box
+     * @param dx     horizontal displacement
+     * @param dy     vertical displacement
+     */
+    public void begin(double x, double y, int width, int height, double dx, double dy) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.dx = dx;
+        this.dy = dy;
+        this.hits = 0;
+        clearHit();
+    }
+
+    private void clearHit() {
+        hitTime = 1;
+        normalX = 0;
+        normalY = 0;
+        sweepLeft = Math.min(x, x + dx);
+        sweepTop = Math.min(y, y + dy);
+        sweepRight = Math.max(x, x + dx) + width;
+        sweepBottom = Math.max(y, y + dy) + height;
+    }
+
+    /**
+     * Tests the remaining displacement against a box and remembers the hit if it is the earliest so far.
+     * A box that already overlaps the moving box only stops movement further into it.
+     */
+    public void test(int otherX, int otherY, int otherWidth, int otherHeight) {
+        int otherRight = otherX + otherWidth;
+        int otherBottom = otherY + otherHeight;
+        // Most boxes are not on the path at all. Tested without branching between the sides, as which side
+        // rejects a box is hard to predict
+        if (sweepLeft >= otherRight | sweepRight <= otherX | sweepTop >= otherBottom | sweepBottom <= otherY) {
+            return;
+        }
+        if (x < otherRight && x + width > otherX && y < otherBottom && y + height > otherY) {
+            testOverlap(otherX, otherY, otherRight, otherBottom);
+            return;
+        }
+
+        double entryX, exitX, entryY, exitY;
+        if (dx > 0) {
+            entryX = (otherX - (x + width)) / dx;
+            exitX = (otherRight - x) / dx;
+        } else if (dx < 0) {
+            entryX = (otherRight - x) / dx;
+            exitX = (otherX - (x + width)) / dx;
+        } else if (x < otherRight && x + width > otherX) {
+            entryX = Double.NEGATIVE_INFINITY;
+            exitX = Double.POSITIVE_INFINITY;
+        } else {
+            return;
+        }
+        if (dy > 0) {
+            entryY = (otherY - (y + height)) / dy;
+            exitY = (otherBottom - y) / dy;
+        } else if (dy < 0) {
+            entryY = (otherBottom - y) / dy;
+            exitY = (otherY - (y + height)) / dy;
+        } else if (y < otherBottom && y + height > otherY) {
+            entryY = Double.NEGATIVE_INFINITY;
+            exitY = Double.POSITIVE_INFINITY;
+        } else {
+            return;
+        }
+
+        double entry = Math.max(entryX, entryY);
+        double exit = Math.min(exitX, exitY);
+        // Boxes that only touch at an edge or corner while passing do not stop the box
+        if (entry >= exit || entry < 0 || entry >= hitTime) {
+            return;
+        }
+        hitTime = entry;
+        if (entryX >= entryY) {
+            normalX = dx > 0 ? -1 : 1;
+            normalY = 0;
+        } else {
+            normalX = 0;
+            normalY = dy > 0 ? -1 : 1;
+        }
+    }
+
+    /**
+     * Stops movement into a box the moving box already overlaps, along the axis it overlaps least.
+     */
+    private void testOverlap(double otherX, double otherY, double otherRight, double otherBottom) {
+        double left = x + width - otherX;
+        double right = otherRight - x;
+        double top = y + height - otherY;
+        double bottom = otherBottom - y;
+        double penetration = Math.min(Math.min(left, right), Math.min(top, bottom));
+        int overlapNormalX = 0, overlapNormalY = 0;
+        if (penetration == left) {
+            overlapNormalX = -1;
+        } else if (penetration == right) {
+            overlapNormalX = 1;
+        } else if (penetration == top) {
+            overlapNormalY = -1;
+        } else {
+            overlapNormalY = 1;
+        }
+        if (dx * overlapNormalX + dy * overlapNormalY < 0) {
+            hitTime = 0;
+            normalX = overlapNormalX;
+            normalY = overlapNormalY;
+        }
+    }
+
+    /**
+     * Moves the box to the earliest hit of the current pass, or along the whole remaining displacement
+     * if nothing was hit. After a hit the displacement into the hit surface is removed.
+     *
+     * @return true if the box slides on and the boxes near the remaining path have to be tested again
+     */
+    public boolean slide() {
+        x += dx * hitTime;
+        y += dy * hitTime;
+        if (hitTime >= 1) {
+            dx = 0;
+            dy = 0;
+            return false;
+        }
+
+        double remaining = 1 - hitTime;
+        dx = normalX != 0 ? 0 : dx * remaining;
+        dy = normalY != 0 ? 0 : dy * remaining;
+        clearHit();
+        if (++hits >= MAX_HITS || (dx == 0 && dy == 0)) {
+            dx = 0;
+            dy = 0;
+            return false;
+        }
+        return true;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the left edge of the area the remaining displacement sweeps, for finding the boxes near it
+     */
+    public double getSweepX() {
+        return sweepLeft;
+    }
+
+    public double getSweepY() {
+        return sweepTop;
+    }
+
+    public double getSweepWidth() {
+        return sweepRight - sweepLeft;
+    }
+
+    public double getSweepHeight() {
+        return sweepBottom - sweepTop;
+    }
+
+    /**
+     * Returns whether the box was stopped or deflected by a box during the last move
+     */
+    public boolean hasHit() {
+        return hits > 0;
+    }
+}
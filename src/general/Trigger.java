@@ -1,5 +1,7 @@
 package general;
 
+import graphics.Sprite;
+
 public class Trigger implements Cloneable {
     private Rectangle boundingBox;
     private OnTrigger onTrigger = null;
@@ -16,9 +18,21 @@ public class Trigger implements Cloneable {
         this.onTrigger = onTrigger;
     }
 
-    public void trigger() {
+    public void enter(Sprite sprite) {
+        if (onTrigger != null) {
+            onTrigger.onEnter(sprite);
+        }
+    }
+
+    public void stay(Sprite sprite) {
+        if (onTrigger != null) {
+            onTrigger.onStay(sprite);
+        }
+    }
+
+    public void exit(Sprite sprite) {
         if (onTrigger != null) {
-            onTrigger.trigger();
+            onTrigger.onExit(sprite);
         }
     }
 
@@ -0,0 +1,173 @@
+package graphics;
+
+import general.Rectangle;
+import general.SweptCollision;
+
+import java.util.Arrays;
+
+/**
+ * ActorCollisions class.
+ * Separates actors whose bounding boxes overlap, once per update, with sort and sweep:
+ * actors are kept sorted by the left edge of their box, so only actors whose boxes start before
+ * the right edge of another box can overlap it. Actors move little between updates,
+ * so the order from the last update is nearly sorted and sorting it again takes about linear time.
+ * <p>
+ * The separation of all overlapping pairs is found first and then applied together.
+ * Each overlapping pair is pushed apart along the axis it overlaps least, both actors by half of the overlap.
+ * Actors are pushed through the static collision geometry and the bounding boxes of the sprites of the level,
+ * so they cannot be pushed into walls or sprites. Other actors are not swept against,
+ * overlapping them again is resolved by the next update.
+ *
+ * @author Finn Kiesinger
+ */
+class ActorCollisions {
+    private Sprite[] actors = new Sprite[16];
+    private int count = 0;
+
+    // Boxes and separation of the actors, in the sorted order
+    private double[] left = new double[16];
+    private double[] top = new double[16];
+    private double[] right = new double[16];
+    private double[] bottom = new double[16];
+    private double[] pushX = new double[16];
+    private double[] pushY = new double[16];
+
+    private final SweptCollision solver = new SweptCollision();
+    private int contacts = 0;
+
+    /**
+     * Adds an actor. Actors without bounding box are ignored.
+     */
+    public void add(Sprite actor) {
+        if (actor.getBoundingBox() == null) {
+            return;
+        }
+        if (count == actors.length) {
+            int capacity = count * 2;
+            actors = Arrays.copyOf(actors, capacity);
+            left = new double[capacity];
+            top = new double[capacity];
+            right = new double[capacity];
+            bottom = new double[capacity];
+            pushX = new double[capacity];
+            pushY = new double[capacity];
+        }
+        actors[count++] = actor;
+    }
+
+    /**
+     * Finds all pairs of actors whose bounding boxes overlap and pushes them apart.
+     *
+     * @param collisionMap the static collision geometry actors cannot be pushed into, may be null
+     * @param collisions   the bounding boxes actors cannot be pushed into, may be null. Boxes of the pushed
+     *                     actor itself are skipped.
+     */
+    public void resolve(CollisionMap collisionMap, CollisionGrid collisions) {
+        for (int i = 0; i < count; i++) {
+            Sprite actor = actors[i];
+            Rectangle box = actor.boundingBox;
+            left[i] = actor.x + box.x;
+            top[i] = actor.y + box.y;
+            right[i] = left[i] + box.width;
+            bottom[i] = top[i] + box.height;
+            pushX[i] = 0;
+            pushY[i] = 0;
+        }
+        sort();
+
+        contacts = 0;
+        for (int i = 0; i < count; i++) {
+            double boxRight = right[i];
+            for (int j = i + 1; j < count && left[j] < boxRight; j++) {
+                if (top[j] >= bottom[i] || bottom[j] <= top[i]) {
+                    continue;
+                }
+                contacts++;
+                double overlapX = Math.min(boxRight, right[j]) - left[j];
+                double overlapY = Math.min(bottom[i], bottom[j]) - Math.max(top[i], top[j]);
+                if (overlapX <= overlapY) {
+                    // j starts right of i, as the boxes are sorted by their left edge
+                    pushX[i] -= overlapX / 2;
+                    pushX[j] += overlapX / 2;
+                } else if (top[i] + bottom[i] <= top[j] + bottom[j]) {
+                    pushY[i] -= overlapY / 2;
+                    pushY[j] += overlapY / 2;
+                } else {
+                    pushY[i] += overlapY / 2;
+                    pushY[j] -= overlapY / 2;
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (pushX[i] != 0 || pushY[i] != 0) {
+                push(actors[i], pushX[i], pushY[i], collisionMap, collisions);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of overlapping pairs found by the last update.
+     */
+    public int getContactCount() {
+        return contacts;
+    }
+
+    /**
+     * Sorts actors and their boxes by the left edge of the box. An insertion sort, as the order of the last update
+     * is nearly sorted.
+     */
+    private void sort() {
+        for (int i = 1; i < count; i++) {
+            double key = left[i];
+            if (left[i - 1] <= key) {
+                continue;
+            }
+            Sprite actor = actors[i];
+            double boxTop = top[i], boxRight = right[i], boxBottom = bottom[i];
+            int j = i - 1;
+            while (j >= 0 && left[j] > key) {
+                actors[j + 1] = actors[j];
+                left[j + 1] = left[j];
+                top[j + 1] = top[j];
+                right[j + 1] = right[j];
+                bottom[j + 1] = bottom[j];
+                j--;
+            }
+            actors[j + 1] = actor;
+            left[j + 1] = key;
+            top[j + 1] = boxTop;
+            right[j + 1] = boxRight;
+            bottom[j + 1] = boxBottom;
+        }
+    }
+
+    private void push(Sprite actor, double dx, double dy, CollisionMap collisionMap, CollisionGrid collisions) {
+        if (collisionMap == null && collisions == null) {
+            actor.x += dx;
+            actor.y += dy;
+            return;
+        }
+        Rectangle box = actor.boundingBox;
+        solver.begin(actor.x + box.x, actor.y + box.y, box.width, box.height, dx, dy);
+        do {
+            if (collisions != null) {
+                int candidates = collisions.query(
+                        (int) Math.floor(solver.getSweepX()),
+                        (int) Math.floor(solver.getSweepY()),
+                        (int) Math.ceil(solver.getSweepWidth()) + 1,
+                        (int) Math.ceil(solver.getSweepHeight()) + 1,
+                        actor);
+                for (int i = 0; i < candidates; i++) {
+                    int id = collisions.getResult(i);
+                    solver.test(collisions.getX(id), collisions.getY(id), collisions.getWidth(id), collisions.getHeight(id));
+                }
+            }
+            if (collisionMap != null) {
+                collisionMap.test(solver);
+            }
+        } while (solver.slide());
+        actor.x = solver.getX() - box.x;
+        actor.y = solver.getY() - box.y;
+    }
+}
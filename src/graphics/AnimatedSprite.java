@@ -1,7 +1,6 @@
 package graphics;
 
 import general.Animation;
-import general.Vector2;
 
 import java.awt.*;
 import java.util.HashMap;
@@ -85,17 +84,24 @@ abstract public class AnimatedSprite extends Sprite {
 
     @Override
     public void draw(Graphics2D graphics) {
+        drawFrame(graphics, getDrawX(), getDrawY());
+    }
+
+    /**
+     * Draws the current frame of the current animation, or the images of the sprite if no animation is playing.
+     *
+     * @param graphics The graphics object to draw on, with the camera applied.
+     * @param x        x coordinate to draw at, in level coordinates
+     * @param y        y coordinate to draw at, in level coordinates
+     */
+    protected void drawFrame(Graphics2D graphics, int x, int y) {
         Animation animation = animations.get(currentAnimation);
-        List<Image> sprites;
         if (animation != null) {
-            sprites = List.of(animation.getCurrentFrame());
-        } else {
-            sprites = images;
+            animation.getCurrentFrame().draw(graphics, x, y);
+            return;
+        }
+        for (int i = 0; i < images.size(); i++) {
+            images.get(i).draw(graphics, x, y);
         }
-
-        Vector2 position = Camera.main
-                .apply(new Vector2((int) x, (int) y));
-
-        sprites.forEach(sprite -> graphics.drawImage(sprite, position.x, position.y, null));
     }
 }
@@ -25,7 +25,7 @@ public class AnimatedWorldObject extends AnimatedSprite {
         this.width = (int) (Assets.instance.getImage(sprites.get(0).get(0)).getWidth(null) * Global.SPRITE_SCALE);
         this.height = (int) (Assets.instance.getImage(sprites.get(0).get(0)).getHeight(null) * Global.SPRITE_SCALE);
 
-        images.add(Assets.instance.getImage(sprites.get(0).get(0)).getScaledInstance(width, height, Image.SCALE_SMOOTH));
+        images.add(Assets.instance.getScaledImage(sprites.get(0).get(0), Global.SPRITE_SCALE));
 
         Animation animation = new Animation("Interaction", sprites, frameTime, false);
 
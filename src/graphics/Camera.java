@@ -1,7 +1,11 @@
 package graphics;
 
+import general.Rectangle;
 import general.Vector2;
 
+import java.awt.*;
+import java.util.List;
+
 /**
  * Camera class.
  * Used to draw object relative to the camera position.
@@ -20,8 +24,8 @@ public class Camera {
      */
     public boolean isVisible(Sprite sprite) {
         Vector2 position = apply(sprite.getPosition());
-        return position.x + sprite.width > 0 && position.x < MainWindow.instance.getWidth() &&
-                position.y + sprite.height > 0 && position.y < MainWindow.instance.getHeight();
+        return position.x + sprite.width > 0 && position.x < screenWidth &&
+                position.y + sprite.height > 0 && position.y < screenHeight;
     }
 
     public static void initialize(int x, int y) {
@@ -34,10 +38,20 @@ public class Camera {
     }
 
     private int x, y;
+    /**
+     * Size of the screen or image the camera renders to
+     */
+    private int screenWidth, screenHeight;
+    /**
+     * Translation from level to screen coordinates, i.e. the screen position of the level origin
+     */
+    private int offsetX, offsetY;
+    private Rectangle viewport = null;
 
     private Camera(int x, int y) {
         this.x = x;
         this.y = y;
+        updateView();
     }
 
     /**
@@ -47,7 +61,57 @@ public class Camera {
      * @return The position relative to the camera.
      */
     public Vector2 apply(Vector2 position) {
-        return MainWindow.instance.getCenter().add(position.subtract(new Vector2(x, y)));
+        return new Vector2(offsetX + position.x, offsetY + position.y);
+    }
+
+    /**
+     * Returns the part of the level that is visible on the screen.
+     *
+     * @return the visible area, in level coordinates
+     */
+    public Rectangle getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Applies the camera to a graphics object, so that everything drawn afterwards can be drawn in level coordinates.
+     * Undo with {@link #reset(Graphics2D)}.
+     *
+     * @param graphics The graphics object to draw on.
+     */
+    public void apply(Graphics2D graphics) {
+        graphics.translate(offsetX, offsetY);
+    }
+
+    /**
+     * Undoes {@link #apply(Graphics2D)}.
+     *
+     * @param graphics The graphics object to draw on.
+     */
+    public void reset(Graphics2D graphics) {
+        graphics.translate(-offsetX, -offsetY);
+    }
+
+    /**
+     * Returns the sprites of a level that are visible on the screen, in the order they are drawn.
+     *
+     * @param level The level.
+     * @return the visible sprites, ordered by depth
+     */
+    public List<Sprite> getVisibleSprites(Level level) {
+        return level.getVisibleSprites(getViewport());
+    }
+
+    /**
+     * Sets the size of the screen or image the camera renders to.
+     *
+     * @param width  The width, in pixels.
+     * @param height The height, in pixels.
+     */
+    public void setScreenSize(int width, int height) {
+        screenWidth = width;
+        screenHeight = height;
+        updateView();
     }
 
     /**
@@ -56,8 +120,21 @@ public class Camera {
      * @param position The new position.
      */
     public void setPosition(Vector2 position) {
-        Vector2 center = MainWindow.instance.getCenter();
-        x = Math.max(center.x, position.x);
-        y = Math.max(center.y, position.y);
+        x = Math.max(screenWidth / 2, position.x);
+        y = Math.max(screenHeight / 2, position.y);
+        updateView();
+    }
+
+    /**
+     * Recalculates the translation and the viewport. The viewport is only replaced when it changed,
+     * so drawing a frame does not allocate.
+     */
+    private void updateView() {
+        offsetX = screenWidth / 2 - x;
+        offsetY = screenHeight / 2 - y;
+        if (viewport == null || viewport.x != -offsetX || viewport.y != -offsetY
+                || viewport.width != screenWidth || viewport.height != screenHeight) {
+            viewport = new Rectangle(-offsetX, -offsetY, screenWidth, screenHeight);
+        }
     }
 }
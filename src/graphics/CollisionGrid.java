@@ -0,0 +1,235 @@
+package graphics;
+
+import java.util.Arrays;
+
+/**
+ * CollisionGrid class.
+ * Broadphase for collisions with sprites: a uniform grid over the level that maps each cell to the bounding boxes
+ * overlapping it, so that finding the boxes near an area only looks at the cells of that area.
+ * Boxes are moved with their sprite and only change cells when it leaves them.
+ * Static collision geometry of the level is kept in a {@link CollisionMap} instead.
+ * Boxes are stored as plain coordinates and identified by an id, so neither moving nor querying allocates.
+ * Boxes outside the level are kept in the nearest cell at the border.
+ *
+ * @author Finn Kiesinger
+ */
+public class CollisionGrid {
+    /**
+     * Edge length of one grid cell, in pixels
+     */
+    static final int CELL_SIZE = 128;
+
+    private final int columns;
+    private final int rows;
+    private final int[][] cells;
+    private final int[] cellSizes;
+
+    // Boxes by id, in level coordinates
+    private int[] boxX = new int[64];
+    private int[] boxY = new int[64];
+    private int[] boxWidth = new int[64];
+    private int[] boxHeight = new int[64];
+    private Sprite[] owners = new Sprite[64];
+    /**
+     * The cells each box was added to, needed to find its cells again
+     */
+    private int[] firstColumns = new int[64];
+    private int[] firstRows = new int[64];
+    private int[] lastColumns = new int[64];
+    private int[] lastRows = new int[64];
+    private int boxCount = 0;
+
+    private int[] results = new int[64];
+    private int resultCount = 0;
+
+    public CollisionGrid(int width, int height) {
+        this.columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+        this.rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+        this.cells = new int[columns * rows][];
+        this.cellSizes = new int[columns * rows];
+    }
+
+    /**
+     * Adds the bounding box of a sprite, at the current position of the sprite.
+     * Does nothing if the sprite has no bounding box or was already added.
+     */
+    void add(Sprite sprite) {
+        if (sprite.boundingBox == null || sprite.collisionId >= 0) {
+            return;
+        }
+        sprite.collisionId = add((int) sprite.x + sprite.boundingBox.x, (int) sprite.y + sprite.boundingBox.y,
+                sprite.boundingBox.width, sprite.boundingBox.height, sprite);
+    }
+
+    /**
+     * Moves the bounding box of a sprite to the current position of the sprite.
+     */
+    void update(Sprite sprite) {
+        if (sprite.collisionId >= 0) {
+            move(sprite.collisionId, (int) sprite.x + sprite.boundingBox.x, (int) sprite.y + sprite.boundingBox.y);
+        }
+    }
+
+    /**
+     * Adds a box that belongs to a sprite.
+     *
+     * @return the id of the box
+     */
+    int add(int x, int y, int width, int height, Sprite owner) {
+        if (boxCount == boxX.length) {
+            int capacity = boxCount * 2;
+            boxX = Arrays.copyOf(boxX, capacity);
+            boxY = Arrays.copyOf(boxY, capacity);
+            boxWidth = Arrays.copyOf(boxWidth, capacity);
+            boxHeight = Arrays.copyOf(boxHeight, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+            firstColumns = Arrays.copyOf(firstColumns, capacity);
+            firstRows = Arrays.copyOf(firstRows, capacity);
+            lastColumns = Arrays.copyOf(lastColumns, capacity);
+            lastRows = Arrays.copyOf(lastRows, capacity);
+        }
+        int id = boxCount++;
+        boxX[id] = x;
+        boxY[id] = y;
+        boxWidth[id] = width;
+        boxHeight[id] = height;
+        owners[id] = owner;
+        insert(id);
+        return id;
+    }
+
+    /**
+     * Moves a box. It only changes cells if it overlaps different cells now.
+     *
+     * @param id the id of the box
+     * @param x  new x coordinate, in level coordinates
+     * @param y  new y coordinate, in level coordinates
+     */
+    public void move(int id, int x, int y) {
+        boxX[id] = x;
+        boxY[id] = y;
+        if (firstColumns[id] == column(x) && firstRows[id] == row(y)
+                && lastColumns[id] == column(x + boxWidth[id] - 1) && lastRows[id] == row(y + boxHeight[id] - 1)) {
+            return;
+        }
+        erase(id);
+        insert(id);
+    }
+
+    /**
+     * Finds all boxes that intersect the given area. Each box is reported once.
+     * The results can be read with {@link #getResult(int)} until the next query.
+     *
+     * @param exclude a sprite whose box is not reported, may be null
+     * @return the number of boxes found
+     */
+    public int query(int x, int y, int width, int height, Sprite exclude) {
+        resultCount = 0;
+        int firstColumn = column(x);
+        int firstRow = row(y);
+        int lastColumn = column(x + width - 1);
+        int lastRow = row(y + height - 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                int[] cellBoxes = cells[cell];
+                for (int i = 0; i < cellSizes[cell]; i++) {
+                    int id = cellBoxes[i];
+                    // A box spanning several cells is only reported by the first of them inside the area
+                    if (Math.max(firstColumns[id], firstColumn) != column || Math.max(firstRows[id], firstRow) != row) {
+                        continue;
+                    }
+                    if (owners[id] == exclude) {
+                        continue;
+                    }
+                    if (boxX[id] + boxWidth[id] > x && boxX[id] < x + width
+                            && boxY[id] + boxHeight[id] > y && boxY[id] < y + height) {
+                        if (resultCount == results.length) {
+                            results = Arrays.copyOf(results, resultCount * 2);
+                        }
+                        results[resultCount++] = id;
+                    }
+                }
+            }
+        }
+        return resultCount;
+    }
+
+    /**
+     * Returns the id of a box found by the last query.
+     *
+     * @param index index of the result, less than the number returned by the query
+     */
+    public int getResult(int index) {
+        return results[index];
+    }
+
+    public int getX(int id) {
+        return boxX[id];
+    }
+
+    public int getY(int id) {
+        return boxY[id];
+    }
+
+    public int getWidth(int id) {
+        return boxWidth[id];
+    }
+
+    public int getHeight(int id) {
+        return boxHeight[id];
+    }
+
+    /**
+     * Returns the sprite a box belongs to.
+     */
+    public Sprite getOwner(int id) {
+        return owners[id];
+    }
+
+    private void insert(int id) {
+        int firstColumn = column(boxX[id]);
+        int firstRow = row(boxY[id]);
+        int lastColumn = column(boxX[id] + boxWidth[id] - 1);
+        int lastRow = row(boxY[id] + boxHeight[id] - 1);
+        firstColumns[id] = firstColumn;
+        firstRows[id] = firstRow;
+        lastColumns[id] = lastColumn;
+        lastRows[id] = lastRow;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                if (cells[cell] == null) {
+                    cells[cell] = new int[8];
+                } else if (cellSizes[cell] == cells[cell].length) {
+                    cells[cell] = Arrays.copyOf(cells[cell], cellSizes[cell] * 2);
+                }
+                cells[cell][cellSizes[cell]++] = id;
+            }
+        }
+    }
+
+    private void erase(int id) {
+        for (int row = firstRows[id]; row <= lastRows[id]; row++) {
+            for (int column = firstColumns[id]; column <= lastColumns[id]; column++) {
+                int cell = row * columns + column;
+                int[] cellBoxes = cells[cell];
+                for (int i = 0; i < cellSizes[cell]; i++) {
+                    if (cellBoxes[i] == id) {
+                        // Order within a cell does not matter
+                        cellBoxes[i] = cellBoxes[--cellSizes[cell]];
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private int column(int x) {
+        return Math.min(columns - 1, Math.max(0, Math.floorDiv(x, CELL_SIZE)));
+    }
+
+    private int row(int y) {
+        return Math.min(rows - 1, Math.max(0, Math.floorDiv(y, CELL_SIZE)));
+    }
+}
@@ -0,0 +1,124 @@
+package graphics;
+
+import general.SweptCollision;
+
+import java.util.BitSet;
+
+/**
+ * CollisionMap class.
+ * The static collision geometry of a level, rasterized into a bitmap of small cells when the level is loaded.
+ * A cell is solid if its center lies inside a collision shape. Testing an area only looks at the cells it covers,
+ * no matter how many shapes the level has.
+ *
+ * @author Finn Kiesinger
+ */
+public class CollisionMap {
+    /**
+     * Edge length of one cell, in pixels. Shape edges are off by at most half a cell.
+     */
+    public static final int CELL_SIZE = 4;
+
+    private final int columns;
+    private final int rows;
+    /**
+     * Solid cells, row by row
+     */
+    private final BitSet solid;
+
+    public CollisionMap(int width, int height) {
+        this.columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+        this.rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+        this.solid = new BitSet(columns * rows);
+    }
+
+    /**
+     * Marks the cells whose center lies inside a rectangle as solid.
+     *
+     * @param x      x coordinate of the rectangle, in level coordinates
+     * @param y      y coordinate of the rectangle, in level coordinates
+     * @param width  width of the rectangle
+     * @param height height of the rectangle
+     */
+    public void fill(double x, double y, double width, double height) {
+        int firstColumn = Math.max(0, (int) Math.ceil(x / CELL_SIZE - 0.5));
+        int lastColumn = Math.min(columns - 1, (int) Math.ceil((x + width) / CELL_SIZE - 0.5) - 1);
+        int firstRow = Math.max(0, (int) Math.ceil(y / CELL_SIZE - 0.5));
+        int lastRow = Math.min(rows - 1, (int) Math.ceil((y + height) / CELL_SIZE - 0.5) - 1);
+        if (firstColumn > lastColumn) {
+            return;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            solid.set(row * columns + firstColumn, row * columns + lastColumn + 1);
+        }
+    }
+
+    /**
+     * Returns whether a point is inside static collision geometry. Points outside the level are not.
+     *
+     * @param x x coordinate, in level coordinates
+     * @param y y coordinate, in level coordinates
+     */
+    public boolean isSolid(int x, int y) {
+        if (x < 0 || y < 0 || x >= columns * CELL_SIZE || y >= rows * CELL_SIZE) {
+            return false;
+        }
+        return solid.get(y / CELL_SIZE * columns + x / CELL_SIZE);
+    }
+
+    /**
+     * Returns whether an area overlaps static collision geometry, i.e. whether a box there would collide.
+     * Decided by the cells the area covers, so an overlap may be reported up to a cell early.
+     *
+     * @param x      x coordinate of the area, in level coordinates
+     * @param y      y coordinate of the area, in level coordinates
+     * @param width  width of the area
+     * @param height height of the area
+     */
+    public boolean overlaps(double x, double y, double width, double height) {
+        int firstColumn = Math.max(0, (int) Math.floor(x / CELL_SIZE));
+        int lastColumn = Math.min(columns - 1, (int) Math.ceil((x + width) / CELL_SIZE) - 1);
+        int firstRow = Math.max(0, (int) Math.floor(y / CELL_SIZE));
+        int lastRow = Math.min(rows - 1, (int) Math.ceil((y + height) / CELL_SIZE) - 1);
+        if (firstColumn > lastColumn) {
+            return false;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            int next = solid.nextSetBit(row * columns + firstColumn);
+            if (next >= 0 && next <= row * columns + lastColumn) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests the remaining path of a move against the solid cells around it.
+     * Neighbouring solid cells of a row are tested as one box.
+     *
+     * @param solver the move
+     */
+    public void test(SweptCollision solver) {
+        // Cells touching the path are included, a box touching them must not move into them
+        int firstColumn = Math.max(0, (int) Math.floor(solver.getSweepX() / CELL_SIZE) - 1);
+        int lastColumn = Math.min(columns - 1, (int) Math.floor((solver.getSweepX() + solver.getSweepWidth()) / CELL_SIZE));
+        int firstRow = Math.max(0, (int) Math.floor(solver.getSweepY() / CELL_SIZE) - 1);
+        int lastRow = Math.min(rows - 1, (int) Math.floor((solver.getSweepY() + solver.getSweepHeight()) / CELL_SIZE));
+        for (int row = firstRow; row <= lastRow; row++) {
+            int rowStart = row * columns;
+            int end = rowStart + lastColumn + 1;
+            int start = solid.nextSetBit(rowStart + firstColumn);
+            while (start >= 0 && start < end) {
+                int runEnd = Math.min(end, solid.nextClearBit(start));
+                solver.test((start - rowStart) * CELL_SIZE, row * CELL_SIZE, (runEnd - start) * CELL_SIZE, CELL_SIZE);
+                start = solid.nextSetBit(runEnd);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of solid cells
+     */
+    public int getSolidCellCount() {
+        return solid.cardinality();
+    }
+}
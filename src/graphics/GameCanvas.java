@@ -1,49 +1,96 @@
 package graphics;
 
 import general.Vector2;
+import lighting.LightMap;
+import lighting.Lighting;
 
-import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
-public class GameCanvas extends JPanel {
+/**
+ * GameCanvas class.
+ * Canvas the game is rendered on. Rendering is active, i.e. frames are drawn and flipped by the game loop thread
+ * through a BufferStrategy, repaint requests by the system are ignored.
+ *
+ * @author Finn Kiesinger
+ */
+public class GameCanvas extends Canvas {
+    static final int LAYER_TIME = 0;
+    static final int SPRITE_TIME = 1;
+    static final int LIGHT_TIME = 2;
+
     private final List<Sprite> spriteList = new ArrayList<>();
-    private BufferedImage lightMap = null;
     private Level level = null;
+    private BufferStrategy bufferStrategy = null;
 
 
     public GameCanvas() {
         setBackground(Color.BLACK);
+        setIgnoreRepaint(true);
+        // Keys are read from the window
+        setFocusable(false);
         BufferedImage cursorImg = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
         Cursor blankCursor = Toolkit.getDefaultToolkit().createCustomCursor(
                 cursorImg, new Point(0, 0), "blank cursor");
         setCursor(blankCursor);
     }
 
-    @Override
-    public void paint(Graphics g) {
-        super.paint(g);
-        Graphics2D g2d = (Graphics2D) g;
+    /**
+     * Renders one frame.
+     *
+     * @param g2d The graphics object to draw on.
+     */
+    public void render(Graphics2D g2d) {
+        render(g2d, getWidth(), getHeight(), level, spriteList, null);
+    }
+
+    /**
+     * Renders one frame of a level and additional sprites through Camera.main.
+     * Used for the window and for offscreen rendering.
+     *
+     * @param g2d     The graphics object to draw on.
+     * @param width   Width of the area to draw on.
+     * @param height  Height of the area to draw on.
+     * @param level   The level, may be null.
+     * @param sprites Sprites drawn on top of the level.
+     * @param timings If not null, receives the time spent drawing layers, sprites and the light map,
+     *                in nanoseconds, at LAYER_TIME, SPRITE_TIME and LIGHT_TIME.
+     */
+    static void render(Graphics2D g2d, int width, int height, Level level, List<Sprite> sprites, long[] timings) {
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(0, 0, width, height);
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
+        // Everything is drawn in level coordinates
+        long start = System.nanoTime();
+        Camera.main.apply(g2d);
         if (level != null) {
-            level.draw(g2d);
+            level.drawLayers(g2d);
         }
-        for (Sprite sprite : spriteList) {
-            sprite.draw(g2d);
+        long layersDrawn = System.nanoTime();
+        if (level != null) {
+            level.drawSprites(g2d);
         }
+        for (int i = 0; i < sprites.size(); i++) {
+            sprites.get(i).draw(g2d);
+        }
+        long spritesDrawn = System.nanoTime();
 
         // Draw light map
+        LightMap lightMap = Lighting.instance.getLightMap();
         if (lightMap != null) {
-            Vector2 position = Camera.main.apply(new Vector2(0, 0));
-            g2d.drawImage(lightMap, position.x, position.y, null);
+            lightMap.draw(g2d, 0, 0, Lighting.instance.getAmbientBrightness());
         }
-    }
+        Camera.main.reset(g2d);
 
-    public void setLightMap(BufferedImage lightMap) {
-        this.lightMap = lightMap;
+        if (timings != null) {
+            timings[LAYER_TIME] = layersDrawn - start;
+            timings[SPRITE_TIME] = spritesDrawn - layersDrawn;
+            timings[LIGHT_TIME] = System.nanoTime() - spritesDrawn;
+        }
     }
 
     public void addSprite(Sprite sprite) {
@@ -65,8 +112,30 @@ public class GameCanvas extends JPanel {
         return level.getSize();
     }
 
+    /**
+     * Renders a frame into the back buffer and shows it.
+     * Must be called from the game loop thread only.
+     */
     public void draw() {
-        repaint();
+        if (bufferStrategy == null) {
+            if (!isDisplayable()) {
+                return;
+            }
+            createBufferStrategy(2);
+            bufferStrategy = getBufferStrategy();
+        }
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) bufferStrategy.getDrawGraphics();
+                try {
+                    render(g2d);
+                } finally {
+                    g2d.dispose();
+                }
+            } while (bufferStrategy.contentsRestored());
+            bufferStrategy.show();
+        } while (bufferStrategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
     }
 
     public void update(long deltaTime) {
@@ -1,9 +1,15 @@
 package graphics;
 
+import game.TextureAtlas;
+import general.Rectangle;
 import general.Vector2;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -13,6 +19,15 @@ import java.util.List;
  * @author Finn Kiesinger
  */
 public class Layer {
+    /**
+     * Width and height of a chunk, in tiles
+     */
+    public static final int CHUNK_SIZE = 16;
+    /**
+     * How many chunks around the viewport are kept before their images are dropped
+     */
+    private static final int EVICTION_DISTANCE = 2;
+
     private final int index;
     private final String name;
     private final int width;
@@ -22,7 +37,15 @@ public class Layer {
     private final List<Integer> tiles = new ArrayList<>();
     private final String source;
 
-    private BufferedImage layerImage = null;
+    /**
+     * Chunk images, row by row. A chunk is CHUNK_SIZE x CHUNK_SIZE tiles and is null until it is first drawn.
+     */
+    private final BufferedImage[] chunks;
+    private final BitSet emptyChunks = new BitSet();
+    private final int chunkColumns;
+    private final int chunkRows;
+    private int visibleColumn = -1;
+    private int visibleRow = -1;
 
     public Layer(int index, String name, int width, int height, int tileWidth, int tileHeight, String source) {
         this.index = index;
@@ -32,6 +55,9 @@ public class Layer {
         this.tileWidth = tileWidth;
         this.tileHeight = tileHeight;
         this.source = source;
+        this.chunkColumns = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunkRows = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunks = new BufferedImage[chunkColumns * chunkRows];
     }
 
     public int getIndex() {
@@ -58,45 +84,149 @@ public class Layer {
         return height;
     }
 
+    public String getSource() {
+        return source;
+    }
+
     public Vector2 getSize() {
         return new Vector2(width * tileWidth, height * tileHeight);
     }
 
     /**
-     * Takes all tiles of the layer and creates a BufferedImage from them.
-     * This is used to draw the layer on the screen.
-     * This removes some drawing issues with the tiles.
+     * Draws the chunks of the layer that are visible and evicts chunks that are far away from the viewport.
+     * Chunks are created the first time they are visible.
+     *
+     * @param graphics The graphics object to draw on, with the camera applied.
+     * @param viewport The visible part of the level, in level coordinates.
      */
-    public void createLayerImage() {
-        BufferedImage layerImage = new BufferedImage(
-                width * tileWidth,
-                height * tileHeight,
-                BufferedImage.TYPE_INT_ARGB
+    public void draw(Graphics2D graphics, Rectangle viewport) {
+        int chunkWidth = CHUNK_SIZE * tileWidth;
+        int chunkHeight = CHUNK_SIZE * tileHeight;
+        int firstColumn = Math.max(0, Math.floorDiv(viewport.x, chunkWidth));
+        int firstRow = Math.max(0, Math.floorDiv(viewport.y, chunkHeight));
+        int lastColumn = Math.min(chunkColumns - 1, Math.floorDiv(viewport.x + viewport.width - 1, chunkWidth));
+        int lastRow = Math.min(chunkRows - 1, Math.floorDiv(viewport.y + viewport.height - 1, chunkHeight));
+
+        createChunkImages(firstColumn, firstRow, lastColumn, lastRow);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                BufferedImage chunk = chunks[row * chunkColumns + column];
+                if (chunk != null) {
+                    graphics.drawImage(chunk, column * chunkWidth, row * chunkHeight, null);
+                }
+            }
+        }
+
+        if (firstColumn != visibleColumn || firstRow != visibleRow) {
+            visibleColumn = firstColumn;
+            visibleRow = firstRow;
+            evictChunks(firstColumn - EVICTION_DISTANCE, firstRow - EVICTION_DISTANCE,
+                    lastColumn + EVICTION_DISTANCE, lastRow + EVICTION_DISTANCE);
+        }
+    }
+
+    /**
+     * Creates the images of all chunks that intersect the given area, so drawing them later does not stall.
+     * Must not be called while the layer is drawn.
+     *
+     * @param area The area to prepare, in level coordinates.
+     */
+    public void prepareChunks(Rectangle area) {
+        int chunkWidth = CHUNK_SIZE * tileWidth;
+        int chunkHeight = CHUNK_SIZE * tileHeight;
+        createChunkImages(
+                Math.max(0, Math.floorDiv(area.x, chunkWidth)),
+                Math.max(0, Math.floorDiv(area.y, chunkHeight)),
+                Math.min(chunkColumns - 1, Math.floorDiv(area.x + area.width - 1, chunkWidth)),
+                Math.min(chunkRows - 1, Math.floorDiv(area.y + area.height - 1, chunkHeight))
         );
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int gid = getTile(x, y);
-                if (gid == 0) {
-                    for (int i = 0; i < tileWidth; i++) {
-                        for (int j = 0; j < tileHeight; j++) {
-                            layerImage.setRGB(x * tileWidth + i, y * tileHeight + j, 0);
-                        }
-                    }
-                } else {
-                    BufferedImage tileImage = Tiles.getTileImage(source, gid);
-                    for (int i = 0; i < tileWidth; i++) {
-                        for (int j = 0; j < tileHeight; j++) {
-                            layerImage.setRGB(x * tileWidth + i, y * tileHeight + j, tileImage.getRGB(i, j));
-                        }
+    }
+
+    /**
+     * Drops all chunk images. They are created again when they are drawn.
+     */
+    public void releaseChunks() {
+        Arrays.fill(chunks, null);
+        visibleColumn = -1;
+        visibleRow = -1;
+    }
+
+    /**
+     * Creates the images of all chunks in the given range that do not have one yet.
+     * Chunks are independent of each other, so they are created in parallel.
+     */
+    private void createChunkImages(int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        List<Integer> missing = null;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int chunk = row * chunkColumns + column;
+                if (chunks[chunk] == null && !emptyChunks.get(chunk)) {
+                    if (missing == null) {
+                        missing = new ArrayList<>();
                     }
+                    missing.add(chunk);
                 }
             }
         }
+        if (missing == null) {
+            return;
+        }
+        missing.parallelStream().forEach(chunk ->
+                chunks[chunk] = createChunkImage(chunk % chunkColumns, chunk / chunkColumns));
+        for (int chunk : missing) {
+            if (chunks[chunk] == null) {
+                emptyChunks.set(chunk);
+            }
+        }
+    }
 
-        this.layerImage = layerImage;
+    /**
+     * Drops all chunk images outside the given range of chunks.
+     */
+    private void evictChunks(int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        for (int row = 0; row < chunkRows; row++) {
+            for (int column = 0; column < chunkColumns; column++) {
+                if (column < firstColumn || column > lastColumn || row < firstRow || row > lastRow) {
+                    chunks[row * chunkColumns + column] = null;
+                }
+            }
+        }
     }
 
-    public BufferedImage getLayerImage() {
-        return layerImage;
+    /**
+     * Takes all tiles of a chunk and creates a BufferedImage from them.
+     * This is used to draw the layer on the screen.
+     * This removes some drawing issues with the tiles.
+     * Tiles are copied row by row as raw pixel data, empty tiles are left transparent.
+     *
+     * @return the chunk image, or null if the chunk has no tiles
+     */
+    private BufferedImage createChunkImage(int column, int row) {
+        int startX = column * CHUNK_SIZE;
+        int startY = row * CHUNK_SIZE;
+        int columns = Math.min(CHUNK_SIZE, width - startX);
+        int rows = Math.min(CHUNK_SIZE, height - startY);
+        BufferedImage chunkImage = null;
+        WritableRaster raster = null;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                int gid = getTile(startX + x, startY + y);
+                if (gid == 0) {
+                    continue;
+                }
+                if (chunkImage == null) {
+                    chunkImage = new BufferedImage(
+                            columns * tileWidth,
+                            rows * tileHeight,
+                            BufferedImage.TYPE_INT_ARGB
+                    );
+                    raster = chunkImage.getRaster();
+                }
+                TextureAtlas.Region tile = Tiles.getTile(source, gid);
+                raster.setDataElements(x * tileWidth, y * tileHeight, tile.getPage().getRaster()
+                        .createChild(tile.x, tile.y, tile.width, tile.height, 0, 0, null));
+            }
+        }
+        return chunkImage;
     }
 }
@@ -6,9 +6,11 @@ import general.Global;
 import general.Rectangle;
 import general.Trigger;
 import general.Vector2;
+import lighting.AnimatedPointLight;
 import lighting.Lighting;
 import lighting.PointLight;
 import org.jdom2.Attribute;
+import org.jdom2.DataConversionException;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
@@ -19,8 +21,10 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Set;
 
 /**
  * Level class.
@@ -34,7 +38,45 @@ public class Level {
     private final List<Layer> layers = new ArrayList<>();
     private final List<Sprite> sprites = new ArrayList<>();
     private final List<Sprite> actors = new ArrayList<>();
-    private final List<Rectangle> collisionRectangles = new ArrayList<>();
+    /**
+     * Sprites are drawn by depth, sprites with the same depth in the order they were added
+     */
+    private static final Comparator<Sprite> DRAW_ORDER = Comparator
+            .comparingInt((Sprite sprite) -> sprite.drawDepth)
+            .thenComparingInt(sprite -> sprite.drawSequence);
+
+    /**
+     * All sprites and actors, by the cells of the level they are in
+     */
+    private SpriteGrid grid;
+    /**
+     * The sprites and actors visible in the last frame, in draw order. Kept from frame to frame,
+     * so only sprites that came into view and actors that changed depth have to be sorted in.
+     */
+    private final List<Sprite> visibleSprites = new ArrayList<>();
+    /**
+     * Sprites found by the grid in this frame, in no particular order
+     */
+    private final List<Sprite> foundSprites = new ArrayList<>();
+    /**
+     * Sprites that came into view in this frame
+     */
+    private final List<Sprite> enteringSprites = new ArrayList<>();
+    private Sprite[] sortBuffer = new Sprite[0];
+    private int nextDrawSequence = 0;
+    private int frame = 0;
+    /**
+     * Bounding boxes of all sprites and actors
+     */
+    private CollisionGrid collisions;
+    /**
+     * Bounding boxes of the sprites only. They never move, so actors can be pushed apart against them
+     * without also testing every other actor of a crowd.
+     */
+    private CollisionGrid spriteCollisions;
+    private CollisionMap collisionMap;
+    private TriggerIndex triggers;
+    private final ActorCollisions actorCollisions = new ActorCollisions();
 
     private Vector2 playerSpawn;
 
@@ -46,31 +88,209 @@ public class Level {
     /**
      * Draws the level.
      *
-     * @param graphics The graphics object to draw on.
+     * @param graphics The graphics object to draw on, with the camera applied.
      */
     public void draw(Graphics2D graphics) {
-        Vector2 position = Camera.main.apply(new Vector2(0, 0));
-        for (Layer layer : layers) {
-            BufferedImage layerImage = layer.getLayerImage();
-            if (layerImage != null) {
-                graphics.drawImage(layerImage, position.x, position.y, null);
+        drawLayers(graphics);
+        drawSprites(graphics);
+    }
+
+    /**
+     * Draws the visible part of all tile layers.
+     *
+     * @param graphics The graphics object to draw on, with the camera applied.
+     */
+    public void drawLayers(Graphics2D graphics) {
+        Rectangle viewport = Camera.main.getViewport();
+        for (int i = 0; i < layers.size(); i++) {
+            layers.get(i).draw(graphics, viewport);
+        }
+    }
+
+    /**
+     * Draws all visible sprites and actors, ordered by depth.
+     *
+     * @param graphics The graphics object to draw on, with the camera applied.
+     */
+    public void drawSprites(Graphics2D graphics) {
+        List<Sprite> visible = Camera.main.getVisibleSprites(this);
+        for (int i = 0; i < visible.size(); i++) {
+            visible.get(i).draw(graphics, Sprite.SPRITE);
+        }
+    }
+
+    /**
+     * Creates the chunk images of all layers in the given area, e.g. around the player spawn after loading.
+     * Layers are independent of each other, so they are prepared in parallel.
+     *
+     * @param area The area to prepare, in level coordinates.
+     */
+    public void prepare(Rectangle area) {
+        layers.parallelStream().forEach(layer -> layer.prepareChunks(area));
+    }
+
+    /**
+     * Returns the sprites and actors that intersect the given area, in the order they are drawn.
+     * The grid only decides which sprites are visible. Their order is carried over from the last call,
+     * sprites that left the area are dropped and those that entered it are merged in.
+     * The returned list is reused by the next call.
+     *
+     * @param area The area, in level coordinates.
+     * @return the visible sprites, ordered by depth
+     */
+    public List<Sprite> getVisibleSprites(Rectangle area) {
+        updateActors();
+        frame++;
+        foundSprites.clear();
+        grid.query(area, foundSprites);
+        for (int i = 0; i < foundSprites.size(); i++) {
+            foundSprites.get(i).visibleFrame = frame;
+        }
+
+        // Drop sprites that left the area and actors whose depth changed, the rest stays in order
+        int kept = 0;
+        for (int i = 0; i < visibleSprites.size(); i++) {
+            Sprite sprite = visibleSprites.get(i);
+            if (sprite.listed && sprite.visibleFrame == frame) {
+                visibleSprites.set(kept++, sprite);
+            } else {
+                sprite.listed = false;
+            }
+        }
+        while (visibleSprites.size() > kept) {
+            visibleSprites.remove(visibleSprites.size() - 1);
+        }
+
+        enteringSprites.clear();
+        for (int i = 0; i < foundSprites.size(); i++) {
+            Sprite sprite = foundSprites.get(i);
+            if (!sprite.listed) {
+                sprite.listed = true;
+                enteringSprites.add(sprite);
+            }
+        }
+        if (!enteringSprites.isEmpty()) {
+            sort(enteringSprites);
+            mergeEnteringSprites();
+        }
+        return visibleSprites;
+    }
+
+    /**
+     * Merges the sorted entering sprites into the visible sprites.
+     */
+    private void mergeEnteringSprites() {
+        int visible = visibleSprites.size();
+        int entering = enteringSprites.size();
+        if (sortBuffer.length < visible) {
+            sortBuffer = new Sprite[Math.max(visible, sortBuffer.length * 2)];
+        }
+        for (int i = 0; i < visible; i++) {
+            sortBuffer[i] = visibleSprites.get(i);
+        }
+        visibleSprites.clear();
+        int left = 0;
+        int right = 0;
+        while (left < visible || right < entering) {
+            if (right >= entering || (left < visible && DRAW_ORDER.compare(sortBuffer[left], enteringSprites.get(right)) <= 0)) {
+                visibleSprites.add(sortBuffer[left++]);
+            } else {
+                visibleSprites.add(enteringSprites.get(right++));
+            }
+        }
+    }
+
+    /**
+     * Sorts sprites by draw order. A stable merge sort into a reused buffer, so it does not allocate.
+     * Runs that are already in order are not merged again.
+     */
+    private void sort(List<Sprite> list) {
+        int size = list.size();
+        if (sortBuffer.length < size) {
+            sortBuffer = new Sprite[Math.max(size, sortBuffer.length * 2)];
+        }
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, size);
+                if (DRAW_ORDER.compare(list.get(middle - 1), list.get(middle)) <= 0) {
+                    continue;
+                }
+                for (int i = low; i < high; i++) {
+                    sortBuffer[i] = list.get(i);
+                }
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (right >= high || (left < middle && DRAW_ORDER.compare(sortBuffer[left], sortBuffer[right]) <= 0)) {
+                        list.set(i, sortBuffer[left++]);
+                    } else {
+                        list.set(i, sortBuffer[right++]);
+                    }
+                }
             }
         }
+    }
 
-        for (Sprite sprite : Stream.concat(sprites.stream(), actors.stream()).sorted().toList()) {
-            if (Camera.main.isVisible(sprite)) {
-                sprite.draw(graphics, Sprite.SPRITE);
+    /**
+     * Moves actors to the grid cells they overlap where they are drawn now and updates their depth.
+     * Actors whose depth changed are taken out of the visible sprites, to be sorted in again at their new depth.
+     * Sprites never move, so they keep their cells and depth.
+     */
+    private void updateActors() {
+        for (int i = 0; i < actors.size(); i++) {
+            Sprite actor = actors.get(i);
+            grid.update(actor);
+            int depth = actor.getDepth();
+            if (depth != actor.drawDepth) {
+                actor.drawDepth = depth;
+                actor.listed = false;
             }
         }
     }
 
+    private void index(Sprite sprite) {
+        sprite.drawDepth = sprite.getDepth();
+        sprite.drawSequence = nextDrawSequence++;
+        grid.add(sprite);
+        collisions.add(sprite);
+        triggers.add(sprite);
+    }
+
+    /**
+     * Advances the level by one update step.
+     *
+     * @param deltaTime length of the step, in nanoseconds
+     */
     public void update(long deltaTime) {
         for (Sprite sprite : sprites) {
             sprite.update(deltaTime);
         }
         for (Sprite actor : actors) {
+            actor.savePosition();
             actor.update(deltaTime);
         }
+        // Actors are separated together, after all of them moved
+        actorCollisions.resolve(collisionMap, spriteCollisions);
+        for (Sprite actor : actors) {
+            collisions.update(actor);
+            triggers.update(actor);
+        }
+        for (Sprite actor : actors) {
+            triggers.check(actor);
+        }
+    }
+
+    /**
+     * Sets where between their positions before and after the last update actors are drawn.
+     * Sprites never move, so they are always drawn at their position.
+     *
+     * @param alpha fraction of an update step passed since the last update, from 0 to 1
+     */
+    public void interpolate(double alpha) {
+        for (int i = 0; i < actors.size(); i++) {
+            actors.get(i).interpolation = alpha;
+        }
     }
 
     public Vector2 getSize() {
@@ -81,6 +301,49 @@ public class Level {
         return name;
     }
 
+    public List<Layer> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Marks all tiles whose tileset entry has the boolean property "collision" set as solid.
+     *
+     * @param tileset  The tileset element of the map.
+     * @param firstGid The gid of the first tile of the tileset.
+     * @throws DataConversionException If a tile id is not a number.
+     */
+    private void fillSolidTiles(Element tileset, int firstGid) throws DataConversionException {
+        Set<Integer> solidTiles = new HashSet<>();
+        for (Element tile : tileset.getChildren("tile")) {
+            Element properties = tile.getChild("properties");
+            if (properties == null) {
+                continue;
+            }
+            for (Element property : properties.getChildren("property")) {
+                if (property.getAttributeValue("name").equals("collision")
+                        && property.getAttributeValue("value").equals("true")) {
+                    solidTiles.add(firstGid + tile.getAttribute("id").getIntValue());
+                }
+            }
+        }
+        if (solidTiles.isEmpty()) {
+            return;
+        }
+
+        for (Layer layer : layers) {
+            Vector2 size = layer.getSize();
+            int tileWidth = size.x / layer.getWidth();
+            int tileHeight = size.y / layer.getHeight();
+            for (int y = 0; y < layer.getHeight(); y++) {
+                for (int x = 0; x < layer.getWidth(); x++) {
+                    if (solidTiles.contains(layer.getTile(x, y))) {
+                        collisionMap.fill(x * tileWidth, y * tileHeight, tileWidth, tileHeight);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Loads a map from a .tmx file.
      *
@@ -132,10 +395,12 @@ public class Level {
                 }
                 layers.add(layer);
             }
-
-            for (Layer layer : layers) {
-                layer.createLayerImage();
-            }
+            grid = new SpriteGrid(getSize().x, getSize().y);
+            collisions = new CollisionGrid(getSize().x, getSize().y);
+            spriteCollisions = new CollisionGrid(getSize().x, getSize().y);
+            collisionMap = new CollisionMap(getSize().x, getSize().y);
+            triggers = new TriggerIndex(getSize().x, getSize().y);
+            fillSolidTiles(tileset, tileset.getAttribute("firstgid").getIntValue());
 
             // Load objects
             List<Element> objectGroups = root.getChildren("objectgroup");
@@ -157,28 +422,28 @@ public class Level {
                             // Set trigger
                             if (data.getTrigger() != null) {
                                 Trigger trigger = data.getTrigger().clone();
-                                trigger.setOnTrigger(() -> animatedWorldObject.playAnimation("Interaction"));
+                                trigger.setOnTrigger(sprite -> animatedWorldObject.playAnimation("Interaction"));
                                 animatedWorldObject.setTrigger(trigger);
                             }
-                            sprites.add(animatedWorldObject);
+                            addSprite(animatedWorldObject);
                         } else {
                             Sprite sprite = new Sprite(name, x, y);
                             sprite.addBoundingBox(data.getBoundingBox());
                             if (data.getTrigger() != null) {
                                 sprite.setTrigger(data.getTrigger().clone());
                             }
-                            sprites.add(sprite);
+                            addSprite(sprite);
                         }
                     }
                 } else if (objectGroupName.equals("Collisions")) {
                     // Load all collision rectangles
                     List<Element> collisionElements = objectGroup.getChildren("object");
                     for (Element collisionElement : collisionElements) {
-                        int x = (int) (collisionElement.getAttribute("x").getDoubleValue() * Global.SPRITE_SCALE);
-                        int y = (int) (collisionElement.getAttribute("y").getDoubleValue() * Global.SPRITE_SCALE);
-                        int width = (int) (collisionElement.getAttribute("width").getDoubleValue() * Global.SPRITE_SCALE);
-                        int height = (int) (collisionElement.getAttribute("height").getDoubleValue() * Global.SPRITE_SCALE);
-                        collisionRectangles.add(new Rectangle(x, y, width, height));
+                        collisionMap.fill(
+                                collisionElement.getAttribute("x").getDoubleValue() * Global.SPRITE_SCALE,
+                                collisionElement.getAttribute("y").getDoubleValue() * Global.SPRITE_SCALE,
+                                collisionElement.getAttribute("width").getDoubleValue() * Global.SPRITE_SCALE,
+                                collisionElement.getAttribute("height").getDoubleValue() * Global.SPRITE_SCALE);
                     }
                 } else if (objectGroupName.equals("Spawn Points")) {
                     // Load all spawn points
@@ -192,7 +457,7 @@ public class Level {
                         }
                     }
                 } else if (objectGroupName.equals("Lighting")) {
-                    // Load all fixed light sources
+                    // Load all light sources, lights with animation properties are animated every frame
                     List<Element> lightElements = objectGroup.getChildren("object");
                     for (Element lightElement : lightElements) {
                         int x = (int) (lightElement.getAttribute("x").getDoubleValue() * Global.SPRITE_SCALE);
@@ -202,20 +467,50 @@ public class Level {
                         int radius = 0;
                         double strength = 0;
                         Color color = null;
+                        Color[] colors = null;
+                        double colorPeriod = 0;
+                        double flicker = 0;
+                        double pulse = 0;
+                        double frequency = 1;
+                        boolean animated = false;
                         for (Element propertyElement : propertyElements) {
                             String propertyName = propertyElement.getAttribute("name").getValue();
                             if (propertyName.equals("radius")) {
                                 radius = propertyElement.getAttribute("value").getIntValue();
                                 radius *= Global.SPRITE_SCALE;
                             } else if (propertyName.equals("color")) {
-                                String colorString = propertyElement.getAttribute("value").getValue();
-                                colorString = "#" + colorString.substring(3);
-                                color = Color.decode(colorString);
+                                color = parseColor(propertyElement.getAttribute("value").getValue());
                             } else if (propertyName.equals("strength")) {
                                 strength = propertyElement.getAttribute("value").getDoubleValue();
+                            } else if (propertyName.equals("colors")) {
+                                String[] colorStrings = propertyElement.getAttribute("value").getValue().split(",");
+                                colors = new Color[colorStrings.length];
+                                for (int i = 0; i < colorStrings.length; i++) {
+                                    colors[i] = parseColor(colorStrings[i].trim());
+                                }
+                                animated = true;
+                            } else if (propertyName.equals("colorPeriod")) {
+                                colorPeriod = propertyElement.getAttribute("value").getDoubleValue();
+                            } else if (propertyName.equals("flicker")) {
+                                flicker = propertyElement.getAttribute("value").getDoubleValue();
+                                animated = true;
+                            } else if (propertyName.equals("pulse")) {
+                                pulse = propertyElement.getAttribute("value").getDoubleValue();
+                                animated = true;
+                            } else if (propertyName.equals("frequency")) {
+                                frequency = propertyElement.getAttribute("value").getDoubleValue();
+                            }
+                        }
+                        PointLight light;
+                        if (animated) {
+                            if (colors == null) {
+                                colors = new Color[]{color};
                             }
+                            light = new AnimatedPointLight(colors, colorPeriod, strength, radius, x, y,
+                                    flicker, pulse, frequency);
+                        } else {
+                            light = new PointLight(color, strength, radius, x, y);
                         }
-                        PointLight light = new PointLight(color, strength, radius, x, y);
                         Lighting.instance.addLight(light);
                     }
                 }
@@ -225,28 +520,58 @@ public class Level {
         }
     }
 
+    /**
+     * Parses a Tiled color, which is stored as #AARRGGBB.
+     */
+    private static Color parseColor(String colorString) {
+        return Color.decode("#" + colorString.substring(3));
+    }
+
     public Vector2 getPlayerSpawn() {
         return playerSpawn;
     }
 
+    public void addSprite(Sprite sprite) {
+        sprites.add(sprite);
+        index(sprite);
+        Rectangle box = sprite.boundingBox;
+        if (box != null) {
+            spriteCollisions.add((int) sprite.x + box.x, (int) sprite.y + box.y, box.width, box.height, sprite);
+        }
+    }
+
     public void addActor(Sprite actor) {
         actors.add(actor);
+        actor.savePosition();
+        index(actor);
+        actorCollisions.add(actor);
     }
 
-    public List<Rectangle> getCollisionRects(Sprite exclude) {
-        return Stream.concat(Stream.concat(sprites.stream(), actors.stream())
-                .filter(sprite -> sprite.getBoundingBox() != null && sprite != exclude)
-                .map(sprite -> new Rectangle(
-                        sprite.getPosition().x + sprite.getBoundingBox().x,
-                        sprite.getPosition().y + sprite.getBoundingBox().y,
-                        sprite.getBoundingBox().width,
-                        sprite.getBoundingBox().height
-                )), collisionRectangles.stream()).toList();
+    /**
+     * Returns the collision broadphase of the level, holding the bounding boxes of all sprites and actors.
+     *
+     * @return the collision grid
+     */
+    public CollisionGrid getCollisions() {
+        return collisions;
     }
 
-    public List<Sprite> getSpriteTriggers(Sprite exclude) {
-        return Stream.concat(sprites.stream(), actors.stream())
-                .filter(sprite -> sprite.getTrigger() != null && sprite != exclude)
-                .toList();
+    /**
+     * Returns the static collision geometry of the level, i.e. the "Collisions" object group
+     * and all tiles with the "collision" property.
+     *
+     * @return the collision map
+     */
+    public CollisionMap getCollisionMap() {
+        return collisionMap;
+    }
+
+    /**
+     * Returns the number of pairs of actors that overlapped and were pushed apart during the last update.
+     *
+     * @return the number of overlapping pairs
+     */
+    public int getActorContactCount() {
+        return actorCollisions.getContactCount();
     }
 }
@@ -5,7 +5,6 @@ import general.Vector2;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 
 public class MainWindow extends JFrame {
     static GraphicsDevice device = GraphicsEnvironment
@@ -25,13 +24,9 @@ public class MainWindow extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setResizable(false);
         setLayout(new BorderLayout());
+        setIgnoreRepaint(true);
 
-
-        JLayeredPane layeredPane = new JLayeredPane();
-        layeredPane.setLayout(new BorderLayout());
-        layeredPane.add(canvas, BorderLayout.CENTER, 0);
-
-        add(layeredPane, BorderLayout.CENTER);
+        add(canvas, BorderLayout.CENTER);
 
         addKeyListener(Input.instance);
         device.setFullScreenWindow(this);
@@ -45,10 +40,6 @@ public class MainWindow extends JFrame {
         canvas.addSprite(sprite);
     }
 
-    public void setLightMap(BufferedImage lightMap) {
-        canvas.setLightMap(lightMap);
-    }
-
     public void setLevel(Level level) {
         canvas.setLevel(level);
     }
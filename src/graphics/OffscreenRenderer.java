@@ -0,0 +1,85 @@
+package graphics;
+
+import general.Vector2;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OffscreenRenderer class.
+ * Renders a level into a BufferedImage instead of the window, so rendering also works without a display,
+ * e.g. for benchmarks. Renders through Camera.main like the window, which is sized to the image.
+ *
+ * @author Finn Kiesinger
+ */
+public class OffscreenRenderer {
+    private final Level level;
+    private final List<Sprite> sprites = new ArrayList<>();
+    private final BufferedImage image;
+    private final Graphics2D graphics;
+    private final long[] timings = new long[3];
+
+    public OffscreenRenderer(Level level, int width, int height) {
+        this.level = level;
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this.graphics = image.createGraphics();
+        Camera.initialize(width / 2, height / 2);
+        Camera.main.setScreenSize(width, height);
+    }
+
+    public void addSprite(Sprite sprite) {
+        sprites.add(sprite);
+    }
+
+    public void setCameraPosition(Vector2 position) {
+        Camera.main.setPosition(position);
+    }
+
+    /**
+     * Renders one frame into the image.
+     */
+    public void render() {
+        render(graphics);
+    }
+
+    /**
+     * Renders one frame onto the given graphics object instead of the image, as if it were the image.
+     */
+    public void render(Graphics2D graphics) {
+        GameCanvas.render(graphics, image.getWidth(), image.getHeight(), level, sprites, timings);
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Time the last frame spent drawing tile layers, in nanoseconds
+     */
+    public long getLayerTime() {
+        return timings[GameCanvas.LAYER_TIME];
+    }
+
+    /**
+     * Time the last frame spent drawing sprites and actors, in nanoseconds
+     */
+    public long getSpriteTime() {
+        return timings[GameCanvas.SPRITE_TIME];
+    }
+
+    /**
+     * Time the last frame spent compositing the light map, in nanoseconds
+     */
+    public long getLightTime() {
+        return timings[GameCanvas.LIGHT_TIME];
+    }
+
+    /**
+     * Releases the graphics object of the image. The renderer cannot be used afterwards.
+     */
+    public void dispose() {
+        graphics.dispose();
+    }
+}
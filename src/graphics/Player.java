@@ -1,6 +1,5 @@
 package graphics;
 
-import general.Rectangle;
 import general.*;
 
 import java.awt.*;
@@ -22,6 +21,7 @@ public class Player extends AnimatedSprite {
     private double dy = 0;
     Direction facing;
     private Level level;
+    private final SweptCollision solver = new SweptCollision();
 
     public Player(Vector2 spawnPoint) {
         super(List.of(
@@ -41,20 +41,10 @@ public class Player extends AnimatedSprite {
 
     @Override
     public void draw(Graphics2D graphics) {
-        Animation animation = animations.get(currentAnimation);
-        List<Image> sprites;
-        if (animation != null) {
-            sprites = List.of(animation.getCurrentFrame());
-        } else {
-            sprites = images;
-        }
-
-        // Calculate the position of the player, relative to the camera, centered
-        Vector2 position = Camera.main
-                .apply(new Vector2((int) x, (int) y))
-                .subtract(getCenter());
-
-        sprites.forEach(sprite -> graphics.drawImage(sprite, position.x, position.y, null));
+        // The player is centered on its position
+        drawFrame(graphics,
+                getDrawX() - (int) (Global.SPRITE_SCALE * width / 2),
+                getDrawY() - (int) (Global.SPRITE_SCALE * height / 2));
     }
 
     public void setLevel(Level level) {
@@ -62,7 +52,7 @@ public class Player extends AnimatedSprite {
     }
 
     /**
-     * Update the player, handle collisions and triggers
+     * Update the player and handle collisions. Triggers are handled by the level.
      *
      * @param deltaTime time since last update, in nanoseconds
      */
@@ -71,52 +61,31 @@ public class Player extends AnimatedSprite {
         super.update(deltaTime);
         double adjustX = dx * SPEED * deltaTime / 1e9f;
         double adjustY = dy * SPEED * deltaTime / 1e9f;
-        x += adjustX;
-        y += adjustY;
-
-        if (level != null) {
-            // Check for collisions
-            for (Rectangle other : level.getCollisionRects(this)) {
-                Rectangle intersect = new Rectangle(
-                        (int) (x + boundingBox.x),
-                        (int) (y + boundingBox.y),
-                        boundingBox.width,
-                        boundingBox.height
-                );
-                Intersection intersection = intersect.intersects(other);
-                if (intersection.intersects) {
-                    if (intersection.side == Side.LEFT) {
-                        x = other.x + other.width - boundingBox.x;
-                    } else if (intersection.side == Side.RIGHT) {
-                        x = other.x - boundingBox.x - boundingBox.width;
-                    } else if (intersection.side == Side.TOP) {
-                        y = other.y + other.height - boundingBox.y;
-                    } else if (intersection.side == Side.BOTTOM) {
-                        y = other.y - boundingBox.y - boundingBox.height;
-                    }
-                }
-            }
+        if (level == null) {
+            x += adjustX;
+            y += adjustY;
+            return;
+        }
 
-            // Check for triggers
-            Rectangle intersect = new Rectangle(
-                    (int) (x + boundingBox.x),
-                    (int) (y + boundingBox.y),
-                    boundingBox.width,
-                    boundingBox.height
-            );
-            for (Sprite other : level.getSpriteTriggers(this)) {
-                Rectangle otherIntersect = new Rectangle(
-                        (int) (other.x + other.getTrigger().getBoundingBox().x),
-                        (int) (other.y + other.getTrigger().getBoundingBox().y),
-                        other.getTrigger().getBoundingBox().width,
-                        other.getTrigger().getBoundingBox().height
-                );
-                Intersection intersection = intersect.intersects(otherIntersect);
-                if (intersection.intersects) {
-                    other.getTrigger().trigger();
-                }
+        // Move until the first box in the way and slide along it,
+        // against the sprites near the remaining path and the static collision geometry
+        CollisionGrid collisions = level.getCollisions();
+        solver.begin(x + boundingBox.x, y + boundingBox.y, boundingBox.width, boundingBox.height, adjustX, adjustY);
+        do {
+            int candidates = collisions.query(
+                    (int) Math.floor(solver.getSweepX()),
+                    (int) Math.floor(solver.getSweepY()),
+                    (int) Math.ceil(solver.getSweepWidth()) + 1,
+                    (int) Math.ceil(solver.getSweepHeight()) + 1,
+                    this);
+            for (int i = 0; i < candidates; i++) {
+                int id = collisions.getResult(i);
+                solver.test(collisions.getX(id), collisions.getY(id), collisions.getWidth(id), collisions.getHeight(id));
             }
-        }
+            level.getCollisionMap().test(solver);
+        } while (solver.slide());
+        x = solver.getX() - boundingBox.x;
+        y = solver.getY() - boundingBox.y;
     }
 
     public void moveHorizontal(int axisValue) {
@@ -1,6 +1,7 @@
 package graphics;
 
 import game.Assets;
+import game.TextureAtlas;
 import general.Global;
 import general.Rectangle;
 import general.Trigger;
@@ -17,7 +18,7 @@ public class Sprite implements Comparable<Sprite> {
     public static final int TRIGGER = 2;
     public static final int EVERYTHING = 3;
 
-    protected final List<Image> images = new ArrayList<>();
+    protected final List<TextureAtlas.Region> images = new ArrayList<>();
     protected double x, y;
 
     private String name = null;
@@ -27,14 +28,49 @@ public class Sprite implements Comparable<Sprite> {
     protected Rectangle boundingBox = null;
     protected Trigger trigger = null;
 
+    /**
+     * Depth the sprite is currently drawn with by its level
+     */
+    int drawDepth;
+    /**
+     * Order in which the sprite was added to its level, orders sprites with the same depth
+     */
+    int drawSequence;
+    /**
+     * Last frame in which its level found the sprite visible
+     */
+    int visibleFrame;
+    /**
+     * Whether the sprite is in the visible sprites of its level, at its current depth
+     */
+    boolean listed;
+    /**
+     * Id of the bounding box in the collision grid of its level, or -1 if it is not in one
+     */
+    int collisionId = -1;
+    /**
+     * Id of the trigger in the trigger index of its level, or -1 if it is not in one
+     */
+    int triggerId = -1;
+    /**
+     * Ids of the triggers the sprite overlapped after its last update, sorted, used to tell enter from stay
+     */
+    int[] triggerContacts = null;
+    int triggerContactCount = 0;
+    /**
+     * Position before the last update, the sprite is drawn between it and its current position
+     */
+    protected double previousX, previousY;
+    /**
+     * Fraction of an update step passed since the last update, 1 draws the sprite at its current position
+     */
+    double interpolation = 1;
+
     public Sprite(String name, int x, int y, int width, int height) {
         this.width = width;
         this.height = height;
 
-        images.add(Assets.instance
-                .getImage(name)
-                .getSubimage(x, y, width, height)
-                .getScaledInstance((int) (width * Global.SPRITE_SCALE), (int) (height * Global.SPRITE_SCALE), Image.SCALE_SMOOTH));
+        images.add(Assets.instance.getScaledImage(name, x, y, width, height, Global.SPRITE_SCALE));
     }
 
     public Sprite(String name, int x, int y) {
@@ -45,7 +81,7 @@ public class Sprite implements Comparable<Sprite> {
         this.width = (int) (image.getWidth() * Global.SPRITE_SCALE);
         this.height = (int) (image.getHeight() * Global.SPRITE_SCALE);
 
-        images.add(image.getScaledInstance(width, height, Image.SCALE_SMOOTH));
+        images.add(Assets.instance.getScaledImage(name, Global.SPRITE_SCALE));
     }
 
     public String getName() {
@@ -83,10 +119,8 @@ public class Sprite implements Comparable<Sprite> {
                 throw new IllegalArgumentException("All sprites.xml must have the same width and height");
             }
 
-            images.add(Assets.instance
-                    .getImage(spriteInfo.name)
-                    .getSubimage(spriteInfo.x, spriteInfo.y, spriteInfo.width, spriteInfo.height)
-                    .getScaledInstance((int) (spriteInfo.width * Global.SPRITE_SCALE), (int) (spriteInfo.height * Global.SPRITE_SCALE), Image.SCALE_SMOOTH));
+            images.add(Assets.instance.getScaledImage(spriteInfo.name,
+                    spriteInfo.x, spriteInfo.y, spriteInfo.width, spriteInfo.height, Global.SPRITE_SCALE));
         }
     }
 
@@ -97,10 +131,17 @@ public class Sprite implements Comparable<Sprite> {
         );
     }
 
+    /**
+     * Draws the sprite.
+     *
+     * @param graphics The graphics object to draw on, with the camera applied.
+     */
     public void draw(Graphics2D graphics) {
-        Vector2 position = Camera.main
-                .apply(new Vector2((int) x, (int) y));
-        images.forEach(image -> graphics.drawImage(image, position.x, position.y, null));
+        int drawX = getDrawX();
+        int drawY = getDrawY();
+        for (int i = 0; i < images.size(); i++) {
+            images.get(i).draw(graphics, drawX, drawY);
+        }
     }
 
     public void draw(Graphics2D graphics, int mode) {
@@ -108,16 +149,12 @@ public class Sprite implements Comparable<Sprite> {
             draw(graphics);
         }
         if ((mode == BOUNDING_BOX || mode == EVERYTHING) && boundingBox != null) {
-            Vector2 position = Camera.main
-                    .apply(new Vector2((int) x, (int) y));
             graphics.setColor(Color.RED);
-            graphics.drawRect(position.x + boundingBox.x, position.y + boundingBox.y, boundingBox.width, boundingBox.height);
+            graphics.drawRect(getDrawX() + boundingBox.x, getDrawY() + boundingBox.y, boundingBox.width, boundingBox.height);
         }
         if ((mode == TRIGGER || mode == EVERYTHING) && trigger != null) {
-            Vector2 position = Camera.main
-                    .apply(new Vector2((int) x, (int) y));
             graphics.setColor(Color.GREEN);
-            graphics.drawRect(position.x + trigger.getBoundingBox().x, position.y + trigger.getBoundingBox().y, trigger.getBoundingBox().width, trigger.getBoundingBox().height);
+            graphics.drawRect(getDrawX() + trigger.getBoundingBox().x, getDrawY() + trigger.getBoundingBox().y, trigger.getBoundingBox().width, trigger.getBoundingBox().height);
         }
     }
 
@@ -139,6 +176,59 @@ public class Sprite implements Comparable<Sprite> {
         return new Vector2((int) x, (int) y);
     }
 
+    /**
+     * Get the position the sprite is drawn at, between its position before and after the last update
+     *
+     * @return the interpolated position of the sprite
+     */
+    public Vector2 getDrawPosition() {
+        return new Vector2(getDrawX(), getDrawY());
+    }
+
+    protected int getDrawX() {
+        if (interpolation >= 1) {
+            return (int) x;
+        }
+        return (int) (previousX + (x - previousX) * interpolation);
+    }
+
+    protected int getDrawY() {
+        if (interpolation >= 1) {
+            return (int) y;
+        }
+        return (int) (previousY + (y - previousY) * interpolation);
+    }
+
+    /**
+     * Remembers the current position as the position before the next update.
+     */
+    void savePosition() {
+        previousX = x;
+        previousY = y;
+    }
+
+    /**
+     * Get the size of the sprite
+     *
+     * @return the size of the sprite
+     */
+    public Vector2 getSize() {
+        return new Vector2(width, height);
+    }
+
+    /**
+     * Returns the depth of the sprite, i.e. the bottom of its bounding box, or of the sprite if it has none.
+     * Sprites with higher depth are drawn on top of sprites with lower depth.
+     *
+     * @return the depth of the sprite
+     */
+    public int getDepth() {
+        if (boundingBox != null) {
+            return (int) (y + boundingBox.y + boundingBox.height);
+        }
+        return (int) (y + height);
+    }
+
     /**
      * Used to order sprites by according to the drawing order.
      * Sprites with higher y values are drawn on top of sprites with lower y values.
@@ -149,15 +239,7 @@ public class Sprite implements Comparable<Sprite> {
      */
     @Override
     public int compareTo(Sprite other) {
-        if (this.boundingBox != null && other.boundingBox != null) {
-            int bottom = (int) (this.y + this.boundingBox.y + this.boundingBox.height);
-            int otherBottom = (int) (other.y + other.boundingBox.y + other.boundingBox.height);
-            return bottom - otherBottom;
-        }
-
-        int bottom = (int) (this.y + this.height);
-        int otherBottom = (int) (other.y + other.height);
-        return bottom - otherBottom;
+        return Integer.compare(getDepth(), other.getDepth());
     }
 
     public static class SpriteInfo {
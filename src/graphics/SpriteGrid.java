@@ -0,0 +1,128 @@
+package graphics;
+
+import general.Rectangle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SpriteGrid class.
+ * A uniform grid over the level that maps each cell to the sprites whose images overlap it,
+ * so that finding the sprites in an area only looks at the cells of that area.
+ * Sprites are placed where they are drawn, which for actors lies between their positions before and after
+ * the last update, so an actor is never culled while any of it is drawn on screen.
+ * Sprites outside the level are kept in the nearest cell at the border.
+ *
+ * @author Finn Kiesinger
+ */
+class SpriteGrid {
+    /**
+     * Edge length of one grid cell, in pixels
+     */
+    static final int CELL_SIZE = 256;
+
+    private final int columns;
+    private final int rows;
+    private final List<Sprite>[] cells;
+    /**
+     * The cells each sprite was added to, as columns and rows, needed to find its cells again
+     */
+    private final Map<Sprite, Rectangle> indexedCells = new HashMap<>();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SpriteGrid(int width, int height) {
+        this.columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+        this.rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+        this.cells = new List[columns * rows];
+    }
+
+    public void add(Sprite sprite) {
+        int x = sprite.getDrawX();
+        int y = sprite.getDrawY();
+        Rectangle range = new Rectangle(column(x), row(y),
+                column(x + sprite.width - 1) - column(x) + 1, row(y + sprite.height - 1) - row(y) + 1);
+        indexedCells.put(sprite, range);
+        for (int row = range.y; row < range.y + range.height; row++) {
+            for (int column = range.x; column < range.x + range.width; column++) {
+                int cell = row * columns + column;
+                if (cells[cell] == null) {
+                    cells[cell] = new ArrayList<>();
+                }
+                cells[cell].add(sprite);
+            }
+        }
+    }
+
+    public void remove(Sprite sprite) {
+        Rectangle range = indexedCells.remove(sprite);
+        if (range == null) {
+            return;
+        }
+        for (int row = range.y; row < range.y + range.height; row++) {
+            for (int column = range.x; column < range.x + range.width; column++) {
+                cells[row * columns + column].remove(sprite);
+            }
+        }
+    }
+
+    /**
+     * Moves a sprite to the cells it overlaps where it is drawn now. Does nothing if it is still in the same cells.
+     * Must be called for every moving sprite after its draw position changed and before the next query.
+     */
+    public void update(Sprite sprite) {
+        Rectangle range = indexedCells.get(sprite);
+        int x = sprite.getDrawX();
+        int y = sprite.getDrawY();
+        if (range != null && range.x == column(x) && range.y == row(y)
+                && range.x + range.width - 1 == column(x + sprite.width - 1)
+                && range.y + range.height - 1 == row(y + sprite.height - 1)) {
+            return;
+        }
+        remove(sprite);
+        add(sprite);
+    }
+
+    /**
+     * Finds all sprites whose image, where it is drawn, intersects the given area. Each sprite is reported once.
+     *
+     * @param area   the area, in level coordinates
+     * @param result the list the sprites are added to
+     */
+    public void query(Rectangle area, List<Sprite> result) {
+        int firstColumn = column(area.x);
+        int firstRow = row(area.y);
+        int lastColumn = column(area.x + area.width - 1);
+        int lastRow = row(area.y + area.height - 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                List<Sprite> cellSprites = cells[row * columns + column];
+                if (cellSprites == null) {
+                    continue;
+                }
+                for (int i = 0; i < cellSprites.size(); i++) {
+                    Sprite sprite = cellSprites.get(i);
+                    int x = sprite.getDrawX();
+                    int y = sprite.getDrawY();
+                    // A sprite spanning several cells is only reported by the first of them inside the area
+                    if (Math.max(column(x), firstColumn) != column || Math.max(row(y), firstRow) != row) {
+                        continue;
+                    }
+                    if (x + sprite.width > area.x && x < area.x + area.width
+                            && y + sprite.height > area.y && y < area.y + area.height) {
+                        result.add(sprite);
+                    }
+                }
+            }
+        }
+    }
+
+    private int column(int x) {
+        return Math.min(columns - 1, Math.max(0, Math.floorDiv(x, CELL_SIZE)));
+    }
+
+    private int row(int y) {
+        return Math.min(rows - 1, Math.max(0, Math.floorDiv(y, CELL_SIZE)));
+    }
+}
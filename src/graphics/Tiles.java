@@ -1,5 +1,6 @@
 package graphics;
 
+import game.TextureAtlas;
 import general.Global;
 
 import java.awt.geom.AffineTransform;
@@ -9,10 +10,14 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class Tiles {
-    private static final Map<String, Map<Integer, BufferedImage>> gids = new HashMap<>();
+    private static final Map<String, Map<Integer, TextureAtlas.Region>> gids = new HashMap<>();
+    /**
+     * Atlas of all scaled tiles. Tiles are only copied into layer chunks, so the atlas is plain ARGB like the chunks.
+     */
+    private static final TextureAtlas atlas = new TextureAtlas(false);
 
 
-    public static BufferedImage getTileImage(String source, int gid) {
+    public static TextureAtlas.Region getTile(String source, int gid) {
         return gids.get(source).get(gid);
     }
 
@@ -36,8 +41,8 @@ public class Tiles {
             AffineTransform tx = AffineTransform.getScaleInstance(Global.SPRITE_SCALE, Global.SPRITE_SCALE);
             AffineTransformOp op = new AffineTransformOp(tx, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
             tileImage = op.filter(sourceImage, tileImage);
-            Map<Integer, BufferedImage> tile = gids.computeIfAbsent(sourceName, k -> new HashMap<>());
-            tile.put(gid, tileImage);
+            Map<Integer, TextureAtlas.Region> tile = gids.computeIfAbsent(sourceName, k -> new HashMap<>());
+            tile.put(gid, atlas.add(tileImage));
         }
     }
 }
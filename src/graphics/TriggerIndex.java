@@ -0,0 +1,98 @@
+package graphics;
+
+import general.Rectangle;
+import general.Trigger;
+
+import java.util.Arrays;
+
+/**
+ * TriggerIndex class.
+ * Keeps the trigger volumes of all sprites and actors of a level in a grid, and remembers which triggers
+ * each actor overlapped after its last update. Checking an actor only looks at the triggers near it
+ * and fires enter, stay and exit callbacks by comparing them with the ones it overlapped before.
+ *
+ * @author Finn Kiesinger
+ */
+class TriggerIndex {
+    private final CollisionGrid volumes;
+    /**
+     * Trigger volumes an actor overlaps now, sorted by id
+     */
+    private int[] contacts = new int[8];
+
+    public TriggerIndex(int width, int height) {
+        this.volumes = new CollisionGrid(width, height);
+    }
+
+    /**
+     * Adds the trigger of a sprite, at the current position of the sprite. Does nothing if it has none.
+     */
+    public void add(Sprite sprite) {
+        Trigger trigger = sprite.getTrigger();
+        if (trigger == null || sprite.triggerId >= 0) {
+            return;
+        }
+        Rectangle box = trigger.getBoundingBox();
+        sprite.triggerId = volumes.add((int) sprite.x + box.x, (int) sprite.y + box.y, box.width, box.height, sprite);
+    }
+
+    /**
+     * Moves the trigger of a sprite to the current position of the sprite.
+     */
+    public void update(Sprite sprite) {
+        if (sprite.triggerId >= 0) {
+            Rectangle box = sprite.getTrigger().getBoundingBox();
+            volumes.move(sprite.triggerId, (int) sprite.x + box.x, (int) sprite.y + box.y);
+        }
+    }
+
+    /**
+     * Finds the triggers the bounding box of an actor overlaps now and fires the callbacks of the triggers
+     * it entered, stayed in or exited since the last check. An actor does not trigger its own trigger.
+     */
+    public void check(Sprite actor) {
+        Rectangle box = actor.getBoundingBox();
+        int count = 0;
+        if (box != null) {
+            count = volumes.query((int) actor.x + box.x, (int) actor.y + box.y, box.width, box.height, actor);
+            if (count > contacts.length) {
+                contacts = new int[Math.max(count, contacts.length * 2)];
+            }
+            for (int i = 0; i < count; i++) {
+                contacts[i] = volumes.getResult(i);
+            }
+            // Few triggers overlap at once
+            for (int i = 1; i < count; i++) {
+                int id = contacts[i];
+                int j = i - 1;
+                while (j >= 0 && contacts[j] > id) {
+                    contacts[j + 1] = contacts[j];
+                    j--;
+                }
+                contacts[j + 1] = id;
+            }
+        }
+
+        // Both lists are sorted, so a merge tells which triggers were entered, stayed in and exited
+        int[] previous = actor.triggerContacts;
+        int previousCount = actor.triggerContactCount;
+        int i = 0, j = 0;
+        while (i < count || j < previousCount) {
+            if (j == previousCount || (i < count && contacts[i] < previous[j])) {
+                volumes.getOwner(contacts[i++]).getTrigger().enter(actor);
+            } else if (i == count || previous[j] < contacts[i]) {
+                volumes.getOwner(previous[j++]).getTrigger().exit(actor);
+            } else {
+                volumes.getOwner(contacts[i++]).getTrigger().stay(actor);
+                j++;
+            }
+        }
+
+        if (previous == null || previous.length < count) {
+            actor.triggerContacts = Arrays.copyOf(contacts, Math.max(count, 4));
+        } else {
+            System.arraycopy(contacts, 0, previous, 0, count);
+        }
+        actor.triggerContactCount = count;
+    }
+}
@@ -0,0 +1,175 @@
+package lighting;
+
+import java.awt.*;
+
+/**
+ * AnimatedPointLight class.
+ * Point light whose strength and color change over time, e.g. for campfires and lanterns.
+ * All animated point lights with the same radius share one stamp rendered in white at full strength,
+ * an animation step only changes the intensity that stamp is blended with,
+ * so only the area of the light is redrawn and no stamp has to be rendered again.
+ * Colors are kept as packed RGB, so animating does not allocate.
+ *
+ * @author Finn Kiesinger
+ */
+public class AnimatedPointLight extends PointLight {
+    private static final double TWO_PI = 2 * Math.PI;
+
+    /**
+     * Color keyframes, as packed RGB
+     */
+    private int[] colors;
+    private final double colorPeriod;
+    private double baseStrength;
+    private final double flicker;
+    private final double pulse;
+    private final double frequency;
+    private final int seed;
+
+    private long time;
+    /**
+     * Current color, as packed RGB
+     */
+    private volatile int rgb;
+    private volatile int intensity;
+
+    /**
+     * @param colors      color keyframes, cycled through evenly over colorPeriod
+     * @param colorPeriod duration of one color cycle, in seconds
+     * @param strength    strength of the light without any animation
+     * @param flicker     amplitude of the random flicker, from 0 (none) to 1
+     * @param pulse       amplitude of the regular pulse, from 0 (none) to 1
+     * @param frequency   frequency of flicker and pulse, in Hz
+     */
+    public AnimatedPointLight(Color[] colors, double colorPeriod, double strength, int radius, int x, int y,
+                              double flicker, double pulse, double frequency) {
+        super(colors[0], strength, radius, x, y);
+        this.colors = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            this.colors[i] = colors[i].getRGB() & 0xFFFFFF;
+        }
+        this.colorPeriod = colorPeriod;
+        this.baseStrength = strength;
+        this.flicker = flicker;
+        this.pulse = pulse;
+        this.frequency = frequency;
+        this.seed = x * 73856093 ^ y * 19349663;
+        animate();
+    }
+
+    @Override
+    public void update(long deltaTime) {
+        time += deltaTime;
+        if (animate()) {
+            changed();
+        }
+    }
+
+    /**
+     * Evaluates color and strength at the current time.
+     *
+     * @return whether the intensity of the light changed
+     */
+    private boolean animate() {
+        double seconds = time / 1e9;
+        int rgb = getRGB(seconds);
+        double strength = baseStrength;
+        if (flicker > 0) {
+            strength *= 1 - flicker * noise(seconds * frequency);
+        }
+        if (pulse > 0) {
+            strength *= 1 - pulse * (0.5 - 0.5 * Math.cos(TWO_PI * frequency * seconds));
+        }
+        this.rgb = rgb;
+        this.strength = strength;
+        int intensity = (int) Math.round(strength * Lighting.calculateBrightness(rgb) * 256 / 255);
+        if (intensity == this.intensity) {
+            return false;
+        }
+        this.intensity = intensity;
+        return true;
+    }
+
+    private int getRGB(double seconds) {
+        if (colors.length == 1 || colorPeriod <= 0) {
+            return colors[0];
+        }
+        double position = (seconds / colorPeriod % 1) * colors.length;
+        int index = (int) position;
+        double t = position - index;
+        int from = colors[index % colors.length];
+        int to = colors[(index + 1) % colors.length];
+        return pack(
+                interpolate(from >> 16 & 0xFF, to >> 16 & 0xFF, t),
+                interpolate(from >> 8 & 0xFF, to >> 8 & 0xFF, t),
+                interpolate(from & 0xFF, to & 0xFF, t)
+        );
+    }
+
+    private static int interpolate(int from, int to, double t) {
+        return (int) (from + (to - from) * t);
+    }
+
+    /**
+     * Smooth value noise between 0 and 1, a new random value every whole t.
+     */
+    private double noise(double t) {
+        long step = (long) Math.floor(t);
+        double f = t - step;
+        f = f * f * (3 - 2 * f);
+        double from = random(step);
+        return from + (random(step + 1) - from) * f;
+    }
+
+    private double random(long step) {
+        long h = step * 0x9E3779B97F4A7C15L + seed;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (h >>> 11) / (double) (1L << 53);
+    }
+
+    @Override
+    public int getLightRGB(int x, int y) {
+        int rgb = this.rgb;
+        return getLightRGB(x, y, rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF, strength);
+    }
+
+    @Override
+    public void getLightRow(int x, int y, int step, int length, int[] row, int offset) {
+        int rgb = this.rgb;
+        getLightRow(x, y, step, length, row, offset, rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF, strength);
+    }
+
+    @Override
+    public Object getStampKey() {
+        return new StampKey(getRadius(), 0xFFFFFF, 1.0);
+    }
+
+    @Override
+    public boolean hasStampKey(Object key) {
+        return key instanceof StampKey stampKey && stampKey.radius() == getRadius()
+                && stampKey.rgb() == 0xFFFFFF && stampKey.strength() == 1.0;
+    }
+
+    @Override
+    public int getStampIntensity() {
+        return intensity;
+    }
+
+    @Override
+    public void setColor(Color color) {
+        colors = new int[]{color.getRGB() & 0xFFFFFF};
+        if (animate()) {
+            changed();
+        }
+    }
+
+    @Override
+    public void setStrength(double strength) {
+        baseStrength = strength;
+        if (animate()) {
+            changed();
+        }
+    }
+}
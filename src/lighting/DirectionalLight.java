@@ -1,6 +1,7 @@
 package lighting;
 
 import java.awt.*;
+import java.util.Arrays;
 
 public class DirectionalLight extends Light {
 
@@ -10,15 +11,25 @@ public class DirectionalLight extends Light {
     }
 
     @Override
-    public Color getLight(int x, int y) {
-        return new Color(
+    public int getLightRGB(int x, int y) {
+        return pack(
                 (int) (color.getRed() * strength),
                 (int) (color.getGreen() * strength),
                 (int) (color.getBlue() * strength)
         );
     }
 
+    @Override
+    public void getLightRow(int x, int y, int step, int length, int[] row, int offset) {
+        Arrays.fill(row, offset, offset + length, getLightRGB(x, y));
+    }
+
     public void setStrength(double strength) {
+        int before = getLightRGB(0, 0);
         this.strength = strength;
+        // Small steps, like a slow fade, often do not change the emitted color at all
+        if (getLightRGB(0, 0) != before) {
+            changed();
+        }
     }
 }
@@ -1,10 +1,178 @@
 package lighting;
 
+import general.Rectangle;
+
 import java.awt.*;
+import java.util.Objects;
 
+/**
+ * Light class.
+ * A light source that can be added to the Lighting.
+ * <p>
+ * Lights are evaluated through {@link #getLightRGB(int, int)}, which returns packed RGB ints and must not allocate.
+ * Lights that can compute a whole row faster than pixel by pixel may also override
+ * {@link #getLightRow(int, int, int, int, int[], int)}.
+ *
+ * @author Finn Kiesinger
+ */
 abstract public class Light {
-    protected Color color;
-    protected double strength;
+    /**
+     * Written by the game thread and read by the lighting workers, so both are volatile
+     */
+    protected volatile Color color;
+    protected volatile double strength;
+
+    /**
+     * Returns the light at the given coordinates.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the light at the given coordinates, as packed RGB (0xRRGGBB)
+     */
+    abstract public int getLightRGB(int x, int y);
+
+    /**
+     * Fills a span of one row with the light at each pixel.
+     *
+     * @param x      x coordinate of the first pixel
+     * @param y      y coordinate of the row
+     * @param length number of pixels to fill
+     * @param row    array receiving the light as packed RGB (0xRRGGBB)
+     * @param offset index in row of the first pixel
+     */
+    public void getLightRow(int x, int y, int length, int[] row, int offset) {
+        getLightRow(x, y, 1, length, row, offset);
+    }
+
+    /**
+     * Fills a span of one row with the light at every step-th pixel.
+     * Used to compute light maps at a lower resolution than the level.
+     *
+     * @param x      x coordinate of the first pixel
+     * @param y      y coordinate of the row
+     * @param step   distance between two pixels, in pixels
+     * @param length number of pixels to fill
+     * @param row    array receiving the light as packed RGB (0xRRGGBB)
+     * @param offset index in row of the first pixel
+     */
+    public void getLightRow(int x, int y, int step, int length, int[] row, int offset) {
+        for (int i = 0; i < length; i++) {
+            row[offset + i] = getLightRGB(x + i * step, y);
+        }
+    }
+
+    /**
+     * Returns the area outside which this light contributes nothing.
+     * Lighting only evaluates a light for pixels inside its bounds.
+     *
+     * @return the bounds of the light, or null if the light reaches every pixel
+     */
+    public Rectangle getBounds() {
+        return null;
+    }
+
+    /**
+     * Checks if {@link #getBounds()} would return the given bounds. Lights that know their bounds from their fields
+     * override this to check without allocating, as it is called whenever a light changes.
+     *
+     * @param bounds the bounds to compare with, may be null
+     * @return whether the bounds of this light are equal to the given bounds
+     */
+    public boolean hasBounds(Rectangle bounds) {
+        Rectangle current = getBounds();
+        if (current == null || bounds == null) {
+            return current == bounds;
+        }
+        return current.x == bounds.x && current.y == bounds.y
+                && current.width == bounds.width && current.height == bounds.height;
+    }
+
+    /**
+     * Returns a key for everything that determines the light this light emits, relative to the top left corner of
+     * its bounds. Lights with a stamp key are rendered once into a cached stamp, shared by all lights with an equal
+     * key, and the light map is built by blending stamps instead of evaluating the light per pixel.
+     * The key must change whenever the emitted light changes in any way other than moving.
+     *
+     * @return the stamp key, or null to evaluate the light per pixel
+     */
+    public Object getStampKey() {
+        return null;
+    }
+
+    /**
+     * Checks if {@link #getStampKey()} would return a key equal to the given one. Lights with a stamp key
+     * override this to check without allocating, as it is called whenever a light changes.
+     *
+     * @param key the stamp key to compare with, may be null
+     * @return whether the stamp key of this light is equal to the given key
+     */
+    public boolean hasStampKey(Object key) {
+        return Objects.equals(key, getStampKey());
+    }
+
+    /**
+     * Fills a span of one row of the stamp described by the given stamp key.
+     * Coordinates are relative to the top left corner of the bounds, so the stamp does not depend on where
+     * the light currently is. By default the light itself is evaluated. Lights whose key holds all their
+     * parameters render from the key alone, so the stamp matches the key and bounds it is cached for even if
+     * the light changed in the meantime. Lights that vary their intensity render it at full intensity here.
+     *
+     * @param key    the stamp key the light was indexed with
+     * @param bounds the bounds the light was indexed with
+     * @param x      x coordinate of the first pixel, relative to the left edge of the bounds
+     * @param y      y coordinate of the row, relative to the top edge of the bounds
+     * @see #getLightRow(int, int, int, int, int[], int)
+     * @see #getStampIntensity()
+     */
+    protected void getStampRow(Object key, Rectangle bounds, int x, int y, int step, int length, int[] row,
+                               int offset) {
+        getLightRow(bounds.x + x, bounds.y + y, step, length, row, offset);
+    }
+
+    /**
+     * Returns the factor the brightness of this light's stamp is multiplied with when it is blended, in 1/256.
+     * Lets animated lights share one stamp and only change their intensity, instead of needing a new stamp
+     * whenever their strength changes. Must be 256 for lights whose stamp is exactly their light.
+     *
+     * @return the intensity, where 256 leaves the stamp unchanged
+     */
+    public int getStampIntensity() {
+        return 256;
+    }
+
+    /**
+     * Advances animated lights. Called once per frame; lights that change call {@link #changed()}.
+     *
+     * @param deltaTime time since last update, in nanoseconds
+     */
+    public void update(long deltaTime) {
+
+    }
+
+    /**
+     * Returns the light at the given coordinates as a Color.
+     * Allocates on every call, use {@link #getLightRGB(int, int)} where it matters.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the light at the given coordinates
+     */
+    public Color getLight(int x, int y) {
+        return new Color(getLightRGB(x, y));
+    }
+
+    /**
+     * Tells Lighting that this light moved or the light it emits changed, so the area it covers is redrawn.
+     * Subclasses call this from every setter that affects {@link #getLightRGB(int, int)} or {@link #getBounds()}.
+     */
+    protected void changed() {
+        Lighting.instance.lightChanged(this);
+    }
 
-    abstract public Color getLight(int x, int y);
+    /**
+     * Packs the given channels into an RGB int.
+     */
+    protected static int pack(int red, int green, int blue) {
+        return red << 16 | green << 8 | blue;
+    }
 }
@@ -0,0 +1,174 @@
+package lighting;
+
+import general.Rectangle;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * LightIndex class.
+ * A uniform grid over the level that maps each cell to the lights whose bounds overlap it,
+ * so that a region of the light map only evaluates the lights that can reach it.
+ * Lights without bounds (e.g. DirectionalLight) reach every pixel and are kept in a separate global list.
+ * <p>
+ * The grid is sparse, so lights may be added before the level size is known.
+ * Lookups are safe while lights are added or removed from another thread, and do not allocate.
+ *
+ * @author Finn Kiesinger
+ */
+class LightIndex {
+    /**
+     * Edge length of one grid cell, in pixels.
+     * Matches the light map tiles at full resolution, so that such a tile looks up exactly one cell.
+     */
+    static final int CELL_SIZE = Lighting.TILE_SIZE;
+
+    private final List<Light> globalLights = new CopyOnWriteArrayList<>();
+    private final Map<Cell, List<Light>> cells = new ConcurrentHashMap<>();
+    /**
+     * Key each thread looks up cells with, so that lookups do not allocate
+     */
+    private final ThreadLocal<Cell> probe = ThreadLocal.withInitial(() -> new Cell(0, 0));
+    /**
+     * The bounds each light was indexed with, needed to find its cells again on removal
+     */
+    private final Map<Light, Rectangle> indexedBounds = new ConcurrentHashMap<>();
+    /**
+     * The stamp key each light was indexed with, for lights that have one
+     */
+    private final Map<Light, Object> stampKeys = new ConcurrentHashMap<>();
+
+    public void add(Light light) {
+        Rectangle bounds = light.getBounds();
+        if (bounds == null) {
+            globalLights.add(light);
+            return;
+        }
+
+        indexedBounds.put(light, bounds);
+        Object stampKey = light.getStampKey();
+        if (stampKey != null) {
+            stampKeys.put(light, stampKey);
+        }
+        for (int cellY = cell(bounds.y); cellY <= cell(bounds.y + bounds.height - 1); cellY++) {
+            for (int cellX = cell(bounds.x); cellX <= cell(bounds.x + bounds.width - 1); cellX++) {
+                cells.computeIfAbsent(new Cell(cellX, cellY), k -> new CopyOnWriteArrayList<>()).add(light);
+            }
+        }
+    }
+
+    public void remove(Light light) {
+        Rectangle bounds = indexedBounds.remove(light);
+        stampKeys.remove(light);
+        if (bounds == null) {
+            globalLights.remove(light);
+            return;
+        }
+
+        for (int cellY = cell(bounds.y); cellY <= cell(bounds.y + bounds.height - 1); cellY++) {
+            for (int cellX = cell(bounds.x); cellX <= cell(bounds.x + bounds.width - 1); cellX++) {
+                List<Light> cellLights = getCell(cellX, cellY);
+                if (cellLights != null) {
+                    cellLights.remove(light);
+                }
+            }
+        }
+    }
+
+    public boolean contains(Light light) {
+        return indexedBounds.containsKey(light) || globalLights.contains(light);
+    }
+
+    /**
+     * Returns the bounds a light was indexed with.
+     *
+     * @param light the light
+     * @return the bounds of the light, or null if it is a global light
+     */
+    public Rectangle getBounds(Light light) {
+        return indexedBounds.get(light);
+    }
+
+    /**
+     * Returns the stamp key a light was indexed with.
+     *
+     * @param light the light
+     * @return the stamp key, or null if the light has none
+     */
+    public Object getStampKey(Light light) {
+        return stampKeys.get(light);
+    }
+
+    /**
+     * Returns the lights without bounds, which reach every pixel.
+     */
+    public List<Light> getGlobalLights() {
+        return globalLights;
+    }
+
+    /**
+     * Collects all lights with bounds that can reach the given region.
+     *
+     * @param x      x coordinate of the region
+     * @param y      y coordinate of the region
+     * @param width  width of the region
+     * @param height height of the region
+     * @param result list the lights are added to, each light at most once
+     */
+    public void query(int x, int y, int width, int height, List<Light> result) {
+        for (int cellY = cell(y); cellY <= cell(y + height - 1); cellY++) {
+            for (int cellX = cell(x); cellX <= cell(x + width - 1); cellX++) {
+                List<Light> cellLights = getCell(cellX, cellY);
+                if (cellLights == null) {
+                    continue;
+                }
+                for (Light light : cellLights) {
+                    Rectangle bounds = indexedBounds.get(light);
+                    if (bounds != null && !result.contains(light)
+                            && bounds.x < x + width && bounds.x + bounds.width > x
+                            && bounds.y < y + height && bounds.y + bounds.height > y) {
+                        result.add(light);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int cell(int coordinate) {
+        return Math.floorDiv(coordinate, CELL_SIZE);
+    }
+
+    /**
+     * Returns the lights of a cell, or null if no light was ever added to it.
+     */
+    private List<Light> getCell(int cellX, int cellY) {
+        Cell cell = probe.get();
+        cell.x = cellX;
+        cell.y = cellY;
+        return cells.get(cell);
+    }
+
+    /**
+     * Coordinates of a grid cell. Only the probes are ever changed, the keys in the map are not.
+     */
+    private static final class Cell {
+        int x, y;
+
+        Cell(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Cell cell && cell.x == x && cell.y == y;
+        }
+
+        @Override
+        public int hashCode() {
+            return x * 0x9E3779B1 + y;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package lighting;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * LightMap class.
+ * Holds the light to draw over the level, one sample per {@link #getResolution()} level pixels in each direction.
+ * It covers either the whole level or, when lighting is scoped to the viewport, an area around the viewport
+ * starting at {@link #getOriginX()}, {@link #getOriginY()}.
+ * Each sample is taken at the center of the square it covers and the map is drawn scaled up with bilinear
+ * interpolation, which hides the lower resolution because light falloff is smooth.
+ * Java2D takes far longer to scale an image bilinearly than to draw it unscaled, so a scaled light map also keeps
+ * a copy at level resolution, which the lighting thread updates along with the samples and which is drawn 1:1.
+ * That copy needs one byte per level pixel, so it is only kept for light maps that cover the viewport,
+ * not for ones that cover the whole level.
+ * <p>
+ * Each sample stores the brightness of the brightest local light as a byte. Ambient light is not part of the map,
+ * it is applied when drawing by picking the palette that turns each brightness into darkness,
+ * so changing the ambient light does not require recomputing any sample.
+ *
+ * @author Finn Kiesinger
+ */
+public class LightMap {
+    /**
+     * One palette per ambient brightness, created when first needed
+     */
+    private static final IndexColorModel[] palettes = new IndexColorModel[256];
+
+    private final WritableRaster raster;
+    private final byte[] pixels;
+    private final int resolution;
+    private int originX, originY;
+
+    /**
+     * The samples scaled up to level resolution, or null if the light map is scaled when drawn
+     */
+    private final WritableRaster scaledRaster;
+    private final byte[] scaledPixels;
+    /**
+     * 2^32 divided by the sum of the bilinear weights, to divide by multiplying
+     */
+    private final long scaleReciprocal;
+
+    /**
+     * The raster combined with the palette of the ambient brightness it was last drawn with
+     */
+    private BufferedImage image = null;
+    private int imageAmbientBrightness = -1;
+    private BufferedImage scaledImage = null;
+    private int scaledImageAmbientBrightness = -1;
+
+    /**
+     * @param width      width of the light map, in samples
+     * @param height     height of the light map, in samples
+     * @param resolution number of level pixels covered by one sample, in each direction
+     * @param scaled     whether to keep a copy at level resolution, see {@link #scale(int, int, int, int)}
+     */
+    LightMap(int width, int height, int resolution, boolean scaled) {
+        this.raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, height, 1, null);
+        this.pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+        this.resolution = resolution;
+        if (scaled && resolution > 1) {
+            scaledRaster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE,
+                    width * resolution, height * resolution, 1, null);
+            scaledPixels = ((DataBufferByte) scaledRaster.getDataBuffer()).getData();
+        } else {
+            scaledRaster = null;
+            scaledPixels = null;
+        }
+        scaleReciprocal = (1L << 32) / (4L * resolution * resolution) + 1;
+    }
+
+    /**
+     * Returns the palette that turns the brightness of a sample into the darkness drawn over the level.
+     * The level is darkened by whatever the brighter of the sample and the ambient light does not reach.
+     *
+     * @param ambientBrightness brightness of the ambient light, from 0 to 255
+     * @return the palette
+     */
+    private static IndexColorModel getPalette(int ambientBrightness) {
+        IndexColorModel palette = palettes[ambientBrightness];
+        if (palette == null) {
+            byte[] black = new byte[256];
+            byte[] alpha = new byte[256];
+            for (int brightness = 0; brightness < 256; brightness++) {
+                alpha[brightness] = (byte) (255 - Math.max(brightness, ambientBrightness));
+            }
+            palette = new IndexColorModel(8, 256, black, black, black, alpha);
+            palettes[ambientBrightness] = palette;
+        }
+        return palette;
+    }
+
+    /**
+     * Draws the light map, scaled to level pixels.
+     *
+     * @param graphics          the graphics object to draw on
+     * @param x                 x coordinate of the level origin on screen
+     * @param y                 y coordinate of the level origin on screen
+     * @param ambientBrightness brightness of the ambient light, from 0 to 255
+     */
+    public void draw(Graphics2D graphics, int x, int y, int ambientBrightness) {
+        x += originX;
+        y += originY;
+        if (scaledRaster != null) {
+            graphics.drawImage(getScaledImage(ambientBrightness), x, y, null);
+            return;
+        }
+        BufferedImage image = getImage(ambientBrightness);
+        if (resolution == 1) {
+            graphics.drawImage(image, x, y, null);
+            return;
+        }
+
+        Object interpolation = graphics.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, x, y, getWidth() * resolution, getHeight() * resolution, null);
+        // Java2D reports no interpolation hint until one is set, which means nearest neighbor
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                interpolation != null ? interpolation : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+    }
+
+    void setOrigin(int originX, int originY) {
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    /**
+     * x coordinate of the level pixel covered by the top left sample
+     */
+    public int getOriginX() {
+        return originX;
+    }
+
+    /**
+     * y coordinate of the level pixel covered by the top left sample
+     */
+    public int getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Returns the light map as an image, black with the alpha channel darkening the level.
+     * The image shares the samples of the light map.
+     *
+     * @param ambientBrightness brightness of the ambient light, from 0 to 255
+     * @return the light map as an image
+     */
+    public BufferedImage getImage(int ambientBrightness) {
+        if (image == null || imageAmbientBrightness != ambientBrightness) {
+            image = new BufferedImage(getPalette(ambientBrightness), raster, false, null);
+            imageAmbientBrightness = ambientBrightness;
+        }
+        return image;
+    }
+
+    /**
+     * Returns the copy at level resolution as an image, see {@link #getImage(int)}.
+     */
+    private BufferedImage getScaledImage(int ambientBrightness) {
+        if (scaledImage == null || scaledImageAmbientBrightness != ambientBrightness) {
+            scaledImage = new BufferedImage(getPalette(ambientBrightness), scaledRaster, false, null);
+            scaledImageAmbientBrightness = ambientBrightness;
+        }
+        return scaledImage;
+    }
+
+    /**
+     * Updates an area of the copy at level resolution from the samples, interpolating bilinearly like Java2D does
+     * when scaling the samples up. Does nothing if the light map keeps no such copy.
+     * Every pixel depends on the samples up to one sample away, so after samples changed, the pixels up to
+     * one sample around them have to be updated as well.
+     *
+     * @param x      x coordinate of the area, in level pixels relative to the origin
+     * @param y      y coordinate of the area, in level pixels relative to the origin
+     * @param width  width of the area, in level pixels
+     * @param height height of the area, in level pixels
+     */
+    void scale(int x, int y, int width, int height) {
+        if (scaledPixels == null) {
+            return;
+        }
+        int mapWidth = getWidth();
+        int mapHeight = getHeight();
+        int scaledWidth = mapWidth * resolution;
+        // Positions are in half pixels, so that pixel and sample centers are whole numbers
+        int twice = 2 * resolution;
+        long half = 2L * resolution * resolution;
+        for (int py = y; py < y + height; py++) {
+            int positionY = 2 * py + 1 - resolution;
+            int sampleY = Math.floorDiv(positionY, twice);
+            int weightY = positionY - sampleY * twice;
+            int top = Math.max(0, Math.min(mapHeight - 1, sampleY)) * mapWidth;
+            int bottom = Math.max(0, Math.min(mapHeight - 1, sampleY + 1)) * mapWidth;
+            int offset = py * scaledWidth;
+
+            int px = x;
+            int end = x + width;
+            while (px < end) {
+                // All pixels between the same two sample columns share the vertically interpolated samples
+                int positionX = 2 * px + 1 - resolution;
+                int sampleX = Math.floorDiv(positionX, twice);
+                int weightX = positionX - sampleX * twice;
+                int left = Math.max(0, Math.min(mapWidth - 1, sampleX));
+                int right = Math.max(0, Math.min(mapWidth - 1, sampleX + 1));
+                int leftBrightness = (pixels[top + left] & 0xFF) * (twice - weightY)
+                        + (pixels[bottom + left] & 0xFF) * weightY;
+                int rightBrightness = (pixels[top + right] & 0xFF) * (twice - weightY)
+                        + (pixels[bottom + right] & 0xFF) * weightY;
+                int spanEnd = Math.min(end, px + (twice - weightX + 1) / 2);
+                for (; px < spanEnd; px++, weightX += 2) {
+                    long brightness = leftBrightness * (twice - weightX) + rightBrightness * weightX + half;
+                    scaledPixels[offset + px] = (byte) (brightness * scaleReciprocal >>> 32);
+                }
+            }
+        }
+    }
+
+    /**
+     * The brightness of the brightest local light at each sample, row by row
+     */
+    byte[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * The copy at level resolution, row by row, or null if the light map keeps none
+     */
+    byte[] getScaledPixels() {
+        return scaledPixels;
+    }
+
+    /**
+     * Whether the light map keeps a copy at level resolution
+     */
+    boolean isScaled() {
+        return scaledPixels != null;
+    }
+
+    /**
+     * Width of the light map, in samples
+     */
+    public int getWidth() {
+        return raster.getWidth();
+    }
+
+    /**
+     * Height of the light map, in samples
+     */
+    public int getHeight() {
+        return raster.getHeight();
+    }
+
+    /**
+     * Number of level pixels covered by one sample, in each direction
+     */
+    public int getResolution() {
+        return resolution;
+    }
+}
@@ -0,0 +1,77 @@
+package lighting;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LightMapBuffers class.
+ * Hands finished light maps from the lighting thread to the drawing thread without locks and without allocating.
+ * <p>
+ * There are three buffers: the lighting thread writes the back buffer, the drawing thread draws the front buffer,
+ * and the third one holds the latest finished light map until the drawing thread picks it up.
+ * Publishing and picking up are a single atomic swap each, so neither thread ever waits for the other
+ * and a buffer is never written while it is drawn.
+ *
+ * @author Finn Kiesinger
+ */
+class LightMapBuffers {
+    /**
+     * Set in the shared slot when it holds a light map the drawing thread has not picked up yet
+     */
+    private static final int FRESH = 4;
+
+    private final LightMap[] buffers = new LightMap[3];
+    /**
+     * Index of the buffer in between the two threads, combined with the FRESH flag
+     */
+    private final AtomicInteger shared = new AtomicInteger(1);
+    /**
+     * Index of the buffer the lighting thread writes, only used by the lighting thread
+     */
+    private int back = 0;
+    /**
+     * Index of the buffer the drawing thread draws, only used by the drawing thread
+     */
+    private int front = 2;
+
+    /**
+     * Returns the index of the back buffer. Lighting thread only.
+     */
+    int getBackIndex() {
+        return back;
+    }
+
+    /**
+     * Returns the back buffer, or null if none was allocated yet. Lighting thread only.
+     */
+    LightMap getBack() {
+        return buffers[back];
+    }
+
+    /**
+     * Replaces the back buffer, e.g. after the light map size changed. Lighting thread only.
+     */
+    void setBack(LightMap lightMap) {
+        buffers[back] = lightMap;
+    }
+
+    /**
+     * Makes the back buffer the latest finished light map and takes over a free buffer as the new back buffer.
+     * Lighting thread only.
+     */
+    void publish() {
+        back = shared.getAndSet(back | FRESH) & ~FRESH;
+    }
+
+    /**
+     * Returns the latest finished light map. Drawing thread only.
+     * The returned light map is not written until the next call.
+     *
+     * @return the latest finished light map, or null if none was published yet
+     */
+    LightMap getLatest() {
+        if ((shared.get() & FRESH) != 0) {
+            front = shared.getAndSet(front) & ~FRESH;
+        }
+        return buffers[front];
+    }
+}
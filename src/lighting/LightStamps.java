@@ -0,0 +1,142 @@
+package lighting;
+
+import general.Rectangle;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * LightStamps class.
+ * Caches the brightness a light emits over its bounds as a stamp, so that building the light map only has to blend
+ * stamps instead of evaluating lights per sample. Lights with equal stamp keys share their stamps.
+ * <p>
+ * A stamp holds the samples of the light relative to the top left corner of its bounds, at one light map
+ * resolution. Since the light map samples a fixed grid, lights that sit at a different offset to that grid need
+ * their own stamp.
+ * Stamps are evicted once no light with their key is left in the Lighting, or when the resolution changes.
+ * Looking up a stamp that was already rendered does not allocate.
+ *
+ * @author Finn Kiesinger
+ * @see Light#getStampKey()
+ */
+class LightStamps {
+    /**
+     * Number of indexed lights using each stamp key, changed while holding the lock on the Lighting
+     */
+    private final Map<Object, Integer> users = new ConcurrentHashMap<>();
+    private final Map<Object, StampSet> stamps = new ConcurrentHashMap<>();
+
+    /**
+     * Registers one more light using the given stamp key.
+     */
+    void acquire(Object key) {
+        users.merge(key, 1, Integer::sum);
+    }
+
+    /**
+     * Unregisters a light using the given stamp key, evicting its stamps if it was the last one.
+     */
+    void release(Object key) {
+        if (users.merge(key, -1, Integer::sum) <= 0) {
+            users.remove(key);
+            stamps.remove(key);
+        }
+    }
+
+    /**
+     * Evicts all stamps made for a different resolution.
+     */
+    void retainResolution(int resolution) {
+        stamps.values().removeIf(set -> set.resolution != resolution);
+    }
+
+    /**
+     * Returns the stamp of a light for the given sample grid, rendering it if needed.
+     *
+     * @param light      the light
+     * @param key        the stamp key of the light
+     * @param bounds     the bounds of the light
+     * @param resolution level pixels per sample
+     * @param phaseX     level pixels between the left edge of the bounds and the first sample in them
+     * @param phaseY     level pixels between the top edge of the bounds and the first sample in them
+     * @return the stamp
+     */
+    Stamp get(Light light, Object key, Rectangle bounds, int resolution, int phaseX, int phaseY) {
+        StampSet set = stamps.get(key);
+        int phase = phaseY * resolution + phaseX;
+        if (set != null && set.resolution == resolution) {
+            Stamp stamp = set.stamps.get(phase);
+            if (stamp != null) {
+                return stamp;
+            }
+        }
+
+        // Lights that render their stamp from their current state may have changed since they were indexed,
+        // such a stamp is only good for this one use
+        Rectangle current = light.getBounds();
+        if (!key.equals(light.getStampKey()) || current == null
+                || current.width != bounds.width || current.height != bounds.height) {
+            return new Stamp(light, key, bounds, resolution, phaseX, phaseY);
+        }
+        if (set == null) {
+            set = new StampSet(resolution);
+            StampSet existing = stamps.putIfAbsent(key, set);
+            if (existing != null) {
+                set = existing;
+            }
+        }
+        if (set.resolution != resolution) {
+            return new Stamp(light, key, bounds, resolution, phaseX, phaseY);
+        }
+
+        // Tiles next to each other usually miss the same stamp at once, only one of them renders it
+        synchronized (set) {
+            Stamp stamp = set.stamps.get(phase);
+            if (stamp == null) {
+                stamp = new Stamp(light, key, bounds, resolution, phaseX, phaseY);
+                set.stamps.set(phase, stamp);
+                if (!users.containsKey(key)) {
+                    // Released while the stamp was rendered, release may have evicted before it was added
+                    stamps.remove(key, set);
+                }
+            }
+            return stamp;
+        }
+    }
+
+    /**
+     * The stamps of one stamp key at one resolution, indexed by phaseY * resolution + phaseX
+     */
+    private static class StampSet {
+        final int resolution;
+        final AtomicReferenceArray<Stamp> stamps;
+
+        StampSet(int resolution) {
+            this.resolution = resolution;
+            this.stamps = new AtomicReferenceArray<>(resolution * resolution);
+        }
+    }
+
+    /**
+     * The brightness of a light at every sample in its bounds, row by row.
+     */
+    static class Stamp {
+        final byte[] brightness;
+        final int width, height;
+
+        Stamp(Light light, Object key, Rectangle bounds, int resolution, int phaseX, int phaseY) {
+            width = Math.max(0, (bounds.width - phaseX + resolution - 1) / resolution);
+            height = Math.max(0, (bounds.height - phaseY + resolution - 1) / resolution);
+            brightness = new byte[width * height];
+
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                light.getStampRow(key, bounds, phaseX, phaseY + y * resolution, resolution, width, row, 0);
+                for (int x = 0; x < width; x++) {
+                    brightness[y * width + x] = (byte) Lighting.calculateBrightness(row[x]);
+                }
+            }
+        }
+    }
+}
@@ -1,13 +1,87 @@
 package lighting;
 
+import general.Rectangle;
+
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Lighting {
     public static final Lighting instance = new Lighting();
-    private final List<Light> lights = new ArrayList<>();
+
+    /**
+     * Edge length of the square tiles the light map is split into, in samples.
+     * Each tile is computed as one task on the pool.
+     */
+    static final int TILE_SIZE = 64;
+
+    private final LightIndex index = new LightIndex();
+    private final LightStamps stamps = new LightStamps();
+    /**
+     * All lights, in the order they were added
+     */
+    private final List<Light> lights = new CopyOnWriteArrayList<>();
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private final LightMapBuffers buffers = new LightMapBuffers();
+    /**
+     * The light map published last, which is always complete
+     */
+    private LightMap published = null;
+    /**
+     * For each buffer, the tiles that were recomputed into other buffers since it was last written
+     */
+    private final BitSet[] staleTiles = {new BitSet(), new BitSet(), new BitSet()};
+    /**
+     * The tiles copied from the published light map in the current update
+     */
+    private final BitSet copiedTiles = new BitSet();
+    private final List<TileTask> tasks = new ArrayList<>();
+    private final List<ScaleTask> scaleTasks = new ArrayList<>();
+    private final ThreadLocal<TileScratch> scratch = ThreadLocal.withInitial(TileScratch::new);
+
+    /**
+     * Number of level pixels covered by one light map sample, in each direction
+     */
+    private int resolution = 1;
+    /**
+     * Whether only the area around the viewport is lit, instead of the whole level
+     */
+    private boolean viewportScoped = false;
+    /**
+     * Level pixels lit around the viewport, so that moving the camera does not reveal unlit areas
+     */
+    private int viewportMargin;
+    /**
+     * The part of the level visible on screen, in level pixels
+     */
+    private int viewportX, viewportY, viewportWidth, viewportHeight;
+    /**
+     * Size, in samples, resolution and scope the light map is currently computed at
+     */
+    private int mapWidth, mapHeight, mapResolution;
+    private boolean mapViewportScoped;
+    /**
+     * Level pixel covered by the top left sample of the light map, always on the tile grid
+     */
+    private int originX, originY;
+    /**
+     * Number of tile columns and rows of the light map
+     */
+    private int columns, rows;
+    /**
+     * Tiles that need to be recomputed, indexed by row * columns + column
+     */
+    private final BitSet dirtyTiles = new BitSet();
+    /**
+     * Tiles being recomputed by the current update
+     */
+    private final BitSet updatingTiles = new BitSet();
 
     private Lighting() {
     }
@@ -22,51 +96,694 @@ public class Lighting {
         return (color.getRed() + color.getGreen() + color.getBlue()) / 3;
     }
 
+    /**
+     * Calculates the brightness of a packed RGB color
+     *
+     * @param rgb the color, as packed RGB
+     * @return the brightness of the color
+     */
+    public static int calculateBrightness(int rgb) {
+        return ((rgb >> 16 & 0xFF) + (rgb >> 8 & 0xFF) + (rgb & 0xFF)) / 3;
+    }
+
     public void addLight(Light light) {
-        lights.add(light);
+        synchronized (this) {
+            lights.add(light);
+            index(light);
+            markDirty(light);
+        }
     }
 
     public void removeLight(Light light) {
-        lights.remove(light);
+        synchronized (this) {
+            if (!index.contains(light)) {
+                return;
+            }
+            lights.remove(light);
+            markDirty(light);
+            unindex(light);
+        }
     }
 
     /**
-     * Returns the light color at the given coordinates
+     * Advances all animated lights. Should be called once per frame.
+     * Only the areas of lights that actually changed are redrawn.
      *
-     * @param x x coordinate
-     * @param y y coordinate
-     * @return the light color at the given coordinates
+     * @param deltaTime time since last update, in nanoseconds
      */
-    private Color getLight(int x, int y) {
-        Color brightestColor = Color.BLACK;
-        int maxBrightness = calculateBrightness(brightestColor);
-
+    public void update(long deltaTime) {
         for (Light light : lights) {
-            Color lightColor = light.getLight(x, y);
-            int brightness = calculateBrightness(lightColor);
-            if (brightness > maxBrightness) {
-                brightestColor = lightColor;
-                maxBrightness = brightness;
+            light.update(deltaTime);
+        }
+    }
+
+    /**
+     * Returns the brightness of the ambient light, i.e. of the brightest light without bounds.
+     * Ambient light is uniform, so it is not part of the light map and is applied when the light map is drawn.
+     *
+     * @return the ambient brightness, from 0 to 255
+     */
+    public int getAmbientBrightness() {
+        int maxBrightness = 0;
+        List<Light> globalLights = index.getGlobalLights();
+        for (int i = 0; i < globalLights.size(); i++) {
+            maxBrightness = Math.max(maxBrightness, calculateBrightness(globalLights.get(i).getLightRGB(0, 0)));
+        }
+        return maxBrightness;
+    }
+
+    /**
+     * Called by a light when it moved or the light it emits changed.
+     * Redraws the area it covered before and the area it covers now.
+     *
+     * @param light the light that changed
+     */
+    void lightChanged(Light light) {
+        synchronized (this) {
+            if (!index.contains(light)) {
+                return;
+            }
+            Rectangle indexed = index.getBounds(light);
+            if (light.hasBounds(indexed)) {
+                if (indexed == null) {
+                    // Ambient light is read when drawing, nothing to redraw
+                    return;
+                }
+                if (light.hasStampKey(index.getStampKey(light))) {
+                    // Only the intensity changed, the light stays where it is indexed
+                    markDirty(light);
+                    return;
+                }
+            }
+            markDirty(light);
+            unindex(light);
+            index(light);
+            markDirty(light);
+        }
+    }
+
+    /**
+     * Adds a light to the index and registers its stamp key.
+     * Must be called while holding the lock on this object.
+     */
+    private void index(Light light) {
+        index.add(light);
+        Object stampKey = index.getStampKey(light);
+        if (stampKey != null) {
+            stamps.acquire(stampKey);
+        }
+    }
+
+    /**
+     * Removes a light from the index and releases its stamp key.
+     * Must be called while holding the lock on this object.
+     */
+    private void unindex(Light light) {
+        Object stampKey = index.getStampKey(light);
+        index.remove(light);
+        if (stampKey != null) {
+            stamps.release(stampKey);
+        }
+    }
+
+    /**
+     * Marks all tiles the given light reaches for recomputation.
+     * Lights without bounds are ambient light, which is applied when drawing, so they do not touch any tile.
+     * Must be called while holding the lock on this object.
+     *
+     * @param light an indexed light
+     */
+    private void markDirty(Light light) {
+        Rectangle bounds = index.getBounds(light);
+        if (bounds != null) {
+            markDirty(bounds);
+        }
+    }
+
+    /**
+     * Marks all tiles overlapping the given area for recomputation.
+     * Must be called while holding the lock on this object.
+     *
+     * @param area the area to redraw, in level pixels
+     */
+    private void markDirty(Rectangle area) {
+        if (columns > 0) {
+            int tileSize = TILE_SIZE * mapResolution;
+            int startX = Math.max(0, Math.floorDiv(area.x - originX, tileSize));
+            int startY = Math.max(0, Math.floorDiv(area.y - originY, tileSize));
+            int endX = Math.min(columns - 1, Math.floorDiv(area.x + area.width - 1 - originX, tileSize));
+            int endY = Math.min(rows - 1, Math.floorDiv(area.y + area.height - 1 - originY, tileSize));
+            for (int tileY = startY; tileY <= endY; tileY++) {
+                if (startX <= endX) {
+                    dirtyTiles.set(tileY * columns + startX, tileY * columns + endX + 1);
+                }
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Marks the whole light map for recomputation.
+     * Must be called while holding the lock on this object.
+     */
+    private void markAllDirty() {
+        dirtyTiles.set(0, columns * rows);
+        notifyAll();
+    }
+
+    /**
+     * Waits until the light map needs an update, because a light was added, removed or changed,
+     * the resolution changed or the viewport moved too far, or until the timeout elapses.
+     *
+     * @param timeoutMillis the maximum time to wait, in milliseconds
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized void awaitChanges(long timeoutMillis) throws InterruptedException {
+        if (dirtyTiles.isEmpty() && resolution == mapResolution && isScoped() == mapViewportScoped
+                && !needsMove()) {
+            wait(timeoutMillis);
+        }
+    }
+
+    /**
+     * Lights only the viewport and a margin around it, instead of the whole level.
+     * Lighting cost then depends on the screen size, not on the level size.
+     * The lit area stays in place while the camera moves within the margin and is moved along with the camera
+     * when it leaves, reusing the part that is still covered.
+     *
+     * @param scoped whether to light only the area around the viewport
+     * @param margin level pixels lit around the viewport in every direction
+     * @see #setViewport(int, int, int, int)
+     */
+    public synchronized void setViewportScoped(boolean scoped, int margin) {
+        viewportScoped = scoped;
+        viewportMargin = Math.max(0, margin);
+        notifyAll();
+    }
+
+    /**
+     * Sets the part of the level visible on screen. Should be called whenever the camera moves.
+     *
+     * @param x      x coordinate of the top left corner, in level pixels
+     * @param y      y coordinate of the top left corner, in level pixels
+     * @param width  width of the viewport, in level pixels
+     * @param height height of the viewport, in level pixels
+     */
+    public synchronized void setViewport(int x, int y, int width, int height) {
+        viewportX = x;
+        viewportY = y;
+        viewportWidth = width;
+        viewportHeight = height;
+        if (isScoped() != mapViewportScoped || needsMove()) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Checks if the light map is lit around the viewport. Until a viewport is set, the whole level is lit.
+     * Must be called while holding the lock on this object.
+     */
+    private boolean isScoped() {
+        return viewportScoped && viewportWidth > 0 && viewportHeight > 0;
+    }
+
+    /**
+     * Checks if a viewport-scoped light map has to follow the viewport,
+     * because less than half the margin is left on one side.
+     * Must be called while holding the lock on this object.
+     */
+    private boolean needsMove() {
+        if (!viewportScoped || !mapViewportScoped) {
+            return false;
+        }
+        int inset = viewportMargin / 2;
+        return viewportX - inset < originX || viewportY - inset < originY
+                || viewportX + viewportWidth + inset > originX + mapWidth * mapResolution
+                || viewportY + viewportHeight + inset > originY + mapHeight * mapResolution;
+    }
+
+    /**
+     * Sets the number of level pixels covered by one light map sample, in each direction.
+     * Light falloff is smooth, so a few samples per tile are usually enough.
+     * The light map is recomputed at the new resolution on the next update.
+     *
+     * @param resolution level pixels per sample, at least 1
+     */
+    public synchronized void setResolution(int resolution) {
+        if (resolution < 1) {
+            throw new IllegalArgumentException("Lighting resolution must be at least 1");
+        }
+        if (this.resolution != resolution) {
+            this.resolution = resolution;
+            notifyAll();
+        }
+    }
+
+    public synchronized int getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Brings the light map up to date and publishes it for {@link #getLightMap()}.
+     * Only tiles touched by lights that were added, removed or changed since the last call are recomputed,
+     * the rest is carried over from the previous light map. When the light map follows the viewport,
+     * only the newly covered tiles are computed. Changing the size, resolution or scope recomputes everything.
+     * A light map around the viewport is also scaled up to level resolution here, tile by tile, so that drawing it
+     * does not have to scale it.
+     * Once the size and resolution are stable, this allocates no new light maps.
+     * Must always be called from the same thread.
+     *
+     * @param width  width of the level, in pixels
+     * @param height height of the level, in pixels
+     * @return whether a new light map was published
+     */
+    public boolean updateLightMap(int width, int height) {
+        // Number of tiles the light map moved by in this update
+        int moveColumns = 0;
+        int moveRows = 0;
+        boolean moved = false;
+        boolean scoped;
+
+        synchronized (this) {
+            scoped = isScoped();
+            int tileSize = TILE_SIZE * resolution;
+            int newWidth, newHeight;
+            if (scoped) {
+                // Large enough to cover the viewport and both margins at any alignment to the tile grid
+                newWidth = ((viewportWidth + 2 * viewportMargin + tileSize - 1) / tileSize + 1) * TILE_SIZE;
+                newHeight = ((viewportHeight + 2 * viewportMargin + tileSize - 1) / tileSize + 1) * TILE_SIZE;
+            } else {
+                newWidth = (width + resolution - 1) / resolution;
+                newHeight = (height + resolution - 1) / resolution;
+            }
+
+            if (newWidth != mapWidth || newHeight != mapHeight || resolution != mapResolution
+                    || scoped != mapViewportScoped) {
+                mapWidth = newWidth;
+                mapHeight = newHeight;
+                mapResolution = resolution;
+                mapViewportScoped = scoped;
+                columns = (mapWidth + TILE_SIZE - 1) / TILE_SIZE;
+                rows = (mapHeight + TILE_SIZE - 1) / TILE_SIZE;
+                originX = scoped ? Math.floorDiv(viewportX - viewportMargin, tileSize) * tileSize : 0;
+                originY = scoped ? Math.floorDiv(viewportY - viewportMargin, tileSize) * tileSize : 0;
+                stamps.retainResolution(resolution);
+                markAllDirty();
+            } else if (needsMove()) {
+                int newOriginX = Math.floorDiv(viewportX - viewportMargin, tileSize) * tileSize;
+                int newOriginY = Math.floorDiv(viewportY - viewportMargin, tileSize) * tileSize;
+                moveColumns = (newOriginX - originX) / tileSize;
+                moveRows = (newOriginY - originY) / tileSize;
+                moved = true;
+
+                // Pending tiles move along, newly covered tiles have to be computed
+                updatingTiles.clear();
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < columns; column++) {
+                        int oldColumn = column + moveColumns;
+                        int oldRow = row + moveRows;
+                        if (oldColumn < 0 || oldColumn >= columns || oldRow < 0 || oldRow >= rows
+                                || dirtyTiles.get(oldRow * columns + oldColumn)) {
+                            updatingTiles.set(row * columns + column);
+                        }
+                    }
+                }
+                dirtyTiles.clear();
+                dirtyTiles.or(updatingTiles);
+                originX = newOriginX;
+                originY = newOriginY;
+            }
+            if (dirtyTiles.isEmpty()) {
+                return false;
+            }
+            updatingTiles.clear();
+            updatingTiles.or(dirtyTiles);
+            dirtyTiles.clear();
+        }
+
+        int back = buffers.getBackIndex();
+        LightMap lightMap = buffers.getBack();
+        // A light map around the viewport is small enough to keep at level resolution, so it is drawn unscaled
+        boolean scaled = scoped && mapResolution > 1;
+        if (lightMap == null || lightMap.getWidth() != mapWidth || lightMap.getHeight() != mapHeight
+                || lightMap.getResolution() != mapResolution || lightMap.isScaled() != scaled) {
+            lightMap = new LightMap(mapWidth, mapHeight, mapResolution, scaled);
+            buffers.setBack(lightMap);
+            staleTiles[back].set(0, columns * rows);
+        }
+        lightMap.setOrigin(originX, originY);
+
+        BitSet stale = staleTiles[back];
+        copiedTiles.clear();
+        if (moved) {
+            // Reuse the part of the previous light map that is still covered, the other buffers are stale everywhere
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    int tile = row * columns + column;
+                    if (!updatingTiles.get(tile)) {
+                        copyTile(published, (row + moveRows) * columns + column + moveColumns, lightMap, tile);
+                        copiedTiles.set(tile);
+                    }
+                }
+            }
+            for (BitSet otherStale : staleTiles) {
+                otherStale.set(0, columns * rows);
+            }
+        } else {
+            // Catch up on tiles that were recomputed into the other buffers, unless they are recomputed anyway
+            stale.andNot(updatingTiles);
+            for (int tile = stale.nextSetBit(0); tile >= 0; tile = stale.nextSetBit(tile + 1)) {
+                copyTile(published, tile, lightMap, tile);
+            }
+            copiedTiles.or(stale);
+        }
+        stale.clear();
+
+        tasks.clear();
+        for (int tile = updatingTiles.nextSetBit(0); tile >= 0; tile = updatingTiles.nextSetBit(tile + 1)) {
+            int x = tile % columns * TILE_SIZE;
+            int y = tile / columns * TILE_SIZE;
+            tasks.add(new TileTask(lightMap, x, y,
+                    Math.min(TILE_SIZE, mapWidth - x), Math.min(TILE_SIZE, mapHeight - y)));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        if (scaled) {
+            scaleTiles(lightMap);
+        }
+
+        for (int i = 0; i < staleTiles.length; i++) {
+            if (i != back) {
+                staleTiles[i].or(updatingTiles);
+            }
+        }
+        buffers.publish();
+        published = lightMap;
+        return true;
+    }
+
+    /**
+     * Copies one tile from one light map to a tile of another light map of the same size.
+     */
+    private void copyTile(LightMap source, int sourceTile, LightMap destination, int tile) {
+        int sourceX = sourceTile % columns * TILE_SIZE;
+        int sourceY = sourceTile / columns * TILE_SIZE;
+        int x = tile % columns * TILE_SIZE;
+        int y = tile / columns * TILE_SIZE;
+        int width = Math.min(TILE_SIZE, mapWidth - x);
+        int height = Math.min(TILE_SIZE, mapHeight - y);
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(source.getPixels(), (sourceY + row) * mapWidth + sourceX,
+                    destination.getPixels(), (y + row) * mapWidth + x, width);
+        }
+
+        if (source.isScaled() && destination.isScaled()) {
+            int resolution = destination.getResolution();
+            int scaledWidth = mapWidth * resolution;
+            for (int row = 0; row < height * resolution; row++) {
+                System.arraycopy(source.getScaledPixels(), (sourceY * resolution + row) * scaledWidth
+                                + sourceX * resolution, destination.getScaledPixels(),
+                        (y * resolution + row) * scaledWidth + x * resolution, width * resolution);
             }
         }
+    }
 
-        return new Color(0, 0, 0, 255 - maxBrightness);
+    /**
+     * Brings the copy of a light map at level resolution up to date with the recomputed and copied tiles.
+     * Each recomputed tile is scaled as one task on the pool, copied tiles already bring their scaled pixels.
+     * Pixels within one sample of a tile depend on its samples as well, so where a tile borders one that
+     * did not change along with it, that part of the neighbor is scaled again afterwards on this thread.
+     */
+    private void scaleTiles(LightMap lightMap) {
+        int tileSize = TILE_SIZE * mapResolution;
+        int scaledWidth = mapWidth * mapResolution;
+        int scaledHeight = mapHeight * mapResolution;
+        scaleTasks.clear();
+        for (int tile = updatingTiles.nextSetBit(0); tile >= 0; tile = updatingTiles.nextSetBit(tile + 1)) {
+            int x = tile % columns * tileSize;
+            int y = tile / columns * tileSize;
+            scaleTasks.add(new ScaleTask(lightMap, x, y,
+                    Math.min(tileSize, scaledWidth - x), Math.min(tileSize, scaledHeight - y)));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(scaleTasks);
+            }
+        });
+
+        for (int tile = 0; tile < columns * rows; tile++) {
+            boolean updated = updatingTiles.get(tile);
+            if (!updated && !copiedTiles.get(tile)) {
+                continue;
+            }
+            int column = tile % columns;
+            int row = tile / columns;
+            for (int neighborRow = Math.max(0, row - 1); neighborRow <= Math.min(rows - 1, row + 1); neighborRow++) {
+                for (int neighborColumn = Math.max(0, column - 1);
+                     neighborColumn <= Math.min(columns - 1, column + 1); neighborColumn++) {
+                    // Recomputed tiles are scaled completely, copied ones match each other
+                    int neighbor = neighborRow * columns + neighborColumn;
+                    if (updatingTiles.get(neighbor) || !updated && copiedTiles.get(neighbor)) {
+                        continue;
+                    }
+                    int startX = Math.max(neighborColumn * tileSize, column * tileSize - mapResolution);
+                    int startY = Math.max(neighborRow * tileSize, row * tileSize - mapResolution);
+                    int endX = Math.min(Math.min((neighborColumn + 1) * tileSize, scaledWidth),
+                            (column + 1) * tileSize + mapResolution);
+                    int endY = Math.min(Math.min((neighborRow + 1) * tileSize, scaledHeight),
+                            (row + 1) * tileSize + mapResolution);
+                    lightMap.scale(startX, startY, endX - startX, endY - startY);
+                }
+            }
+        }
     }
 
     /**
-     * Calculates the light map, which is a BufferedImage with the light color at each pixel
+     * Returns the latest finished light map.
+     * The returned light map stays unchanged until the next call, so this must only be called from the thread
+     * that draws the light map.
      *
-     * @param width  width of the light map (derived from level size)
-     * @param height height of the light map (derived from level size)
-     * @return the light map, as a BufferedImage
+     * @return the light map, or null if it was not calculated yet
+     */
+    public LightMap getLightMap() {
+        return buffers.getLatest();
+    }
+
+    /**
+     * Computes one tile of the light map.
+     */
+    private class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final LightMap lightMap;
+        private final int x, y, width, height;
+
+        /**
+         * @param lightMap the light map to compute the tile of
+         * @param x        x coordinate of the tile, in samples
+         * @param y        y coordinate of the tile, in samples
+         * @param width    width of the tile, in samples
+         * @param height   height of the tile, in samples
+         */
+        TileTask(LightMap lightMap, int x, int y, int width, int height) {
+            this.lightMap = lightMap;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        protected void compute() {
+            int resolution = lightMap.getResolution();
+            // Each sample is taken at the center of the square of level pixels it covers
+            int center = resolution / 2;
+            int levelX = lightMap.getOriginX() + x * resolution + center;
+
+            TileScratch scratch = Lighting.this.scratch.get();
+            List<Light> lights = scratch.lights;
+            lights.clear();
+            index.query(lightMap.getOriginX() + x * resolution, lightMap.getOriginY() + y * resolution,
+                    width * resolution, height * resolution, lights);
+
+            // Everything but the row is the same for the whole tile, so each light is looked up once
+            int firstLevelY = lightMap.getOriginY() + y * resolution + center;
+            TileLight[] tileLights = scratch.getTileLights(lights.size());
+            int count = 0;
+            for (int l = 0; l < lights.size(); l++) {
+                Light light = lights.get(l);
+                Rectangle bounds = index.getBounds(light);
+                if (bounds == null) {
+                    continue;
+                }
+                // Only evaluate the samples of the tile the light can reach
+                int start = Math.max(0, Math.floorDiv(bounds.x - levelX + resolution - 1, resolution));
+                int end = Math.min(width, Math.floorDiv(bounds.x + bounds.width - 1 - levelX, resolution) + 1);
+                if (start >= end) {
+                    continue;
+                }
+
+                TileLight tileLight = tileLights[count++];
+                tileLight.light = light;
+                tileLight.bounds = bounds;
+                tileLight.start = start;
+                tileLight.end = end;
+                tileLight.stamp = null;
+                Object stampKey = index.getStampKey(light);
+                if (stampKey != null) {
+                    // The samples of this map are at the same offset to every row and column of the bounds
+                    int phaseX = Math.floorMod(levelX - bounds.x, resolution);
+                    int phaseY = Math.floorMod(firstLevelY - bounds.y, resolution);
+                    tileLight.stamp = stamps.get(light, stampKey, bounds, resolution, phaseX, phaseY);
+                    tileLight.intensity = light.getStampIntensity();
+                    tileLight.column = Math.floorDiv(levelX - bounds.x, resolution);
+                    tileLight.row = Math.floorDiv(firstLevelY - bounds.y, resolution);
+                }
+            }
+
+            byte[] pixels = lightMap.getPixels();
+            int[] row = scratch.row;
+            int[] maxBrightness = scratch.maxBrightness;
+            for (int py = y; py < y + height; py++) {
+                int levelY = lightMap.getOriginY() + py * resolution + center;
+                Arrays.fill(maxBrightness, 0, width, 0);
+                for (int l = 0; l < count; l++) {
+                    TileLight tileLight = tileLights[l];
+                    Rectangle bounds = tileLight.bounds;
+                    if (levelY < bounds.y || levelY >= bounds.y + bounds.height) {
+                        continue;
+                    }
+                    int start = tileLight.start;
+                    int end = tileLight.end;
+
+                    LightStamps.Stamp stamp = tileLight.stamp;
+                    if (stamp != null) {
+                        int offset = (tileLight.row + py - y) * stamp.width + tileLight.column;
+                        int intensity = tileLight.intensity;
+                        if (intensity == 256) {
+                            for (int i = start; i < end; i++) {
+                                int brightness = stamp.brightness[offset + i] & 0xFF;
+                                if (brightness > maxBrightness[i]) {
+                                    maxBrightness[i] = brightness;
+                                }
+                            }
+                        } else {
+                            for (int i = start; i < end; i++) {
+                                int brightness = Math.min(255, (stamp.brightness[offset + i] & 0xFF) * intensity >> 8);
+                                if (brightness > maxBrightness[i]) {
+                                    maxBrightness[i] = brightness;
+                                }
+                            }
+                        }
+                    } else {
+                        tileLight.light.getLightRow(levelX + start * resolution, levelY, resolution, end - start,
+                                row, start);
+                        for (int i = start; i < end; i++) {
+                            int brightness = calculateBrightness(row[i]);
+                            if (brightness > maxBrightness[i]) {
+                                maxBrightness[i] = brightness;
+                            }
+                        }
+                    }
+                }
+
+                int offset = py * lightMap.getWidth() + x;
+                for (int i = 0; i < width; i++) {
+                    pixels[offset + i] = (byte) maxBrightness[i];
+                }
+            }
+
+            // Evicted stamps and removed lights must not stay reachable from the scratch of this thread
+            for (int l = 0; l < count; l++) {
+                tileLights[l].clear();
+            }
+            lights.clear();
+        }
+    }
+
+    /**
+     * Scales one tile of the light map up to level resolution.
      */
-    public BufferedImage calculateLightMap(int width, int height) {
-        BufferedImage lightMap = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                lightMap.setRGB(x, y, getLight(x, y).getRGB());
+    private static class ScaleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final LightMap lightMap;
+        private final int x, y, width, height;
+
+        /**
+         * @param lightMap the light map to scale the tile of
+         * @param x        x coordinate of the tile, in level pixels relative to the origin
+         * @param y        y coordinate of the tile, in level pixels relative to the origin
+         * @param width    width of the tile, in level pixels
+         * @param height   height of the tile, in level pixels
+         */
+        ScaleTask(LightMap lightMap, int x, int y, int width, int height) {
+            this.lightMap = lightMap;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        protected void compute() {
+            lightMap.scale(x, y, width, height);
+        }
+    }
+
+    /**
+     * Per-thread arrays reused by every tile computed on that thread.
+     */
+    private static class TileScratch {
+        final List<Light> lights = new ArrayList<>();
+        final int[] row = new int[TILE_SIZE];
+        final int[] maxBrightness = new int[TILE_SIZE];
+        private TileLight[] tileLights = new TileLight[0];
+
+        /**
+         * Returns at least the given number of tile lights, only allocating when more are needed than ever before.
+         */
+        TileLight[] getTileLights(int count) {
+            if (tileLights.length < count) {
+                TileLight[] grown = Arrays.copyOf(tileLights, Math.max(count, 2 * tileLights.length));
+                for (int i = tileLights.length; i < grown.length; i++) {
+                    grown[i] = new TileLight();
+                }
+                tileLights = grown;
             }
+            return tileLights;
+        }
+    }
+
+    /**
+     * What one tile needs to know about a light that reaches it, looked up once per tile.
+     */
+    private static class TileLight {
+        Light light;
+        Rectangle bounds;
+        /**
+         * First and last sample, exclusive, of each row of the tile the light reaches
+         */
+        int start, end;
+        /**
+         * The stamp of the light, or null to evaluate it per sample
+         */
+        LightStamps.Stamp stamp;
+        int intensity;
+        /**
+         * Column and row of the stamp at the first sample of the tile
+         */
+        int column, row;
+
+        void clear() {
+            light = null;
+            bounds = null;
+            stamp = null;
         }
-        return lightMap;
     }
 }
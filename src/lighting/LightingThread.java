@@ -4,15 +4,20 @@ import general.Vector2;
 import graphics.MainWindow;
 
 public class LightingThread extends Thread {
+    /**
+     * How long to wait for light changes before checking the level size again, in milliseconds
+     */
+    private static final long IDLE_TIMEOUT = 500;
+
     @Override
     public void run() {
         while (!isInterrupted()) {
             Vector2 size = MainWindow.instance.getLevelSize();
-            MainWindow.instance.setLightMap(Lighting.instance.calculateLightMap(size.x, size.y));
+            Lighting.instance.updateLightMap(size.x, size.y);
             try {
-                Thread.sleep(500);
+                Lighting.instance.awaitChanges(IDLE_TIMEOUT);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                return;
             }
         }
     }
@@ -1,11 +1,14 @@
 package lighting;
 
+import general.Rectangle;
+
 import java.awt.*;
+import java.util.Arrays;
 
 public class PointLight extends Light {
-    private int radius;
-    private int x;
-    private int y;
+    private volatile int radius;
+    private volatile int x;
+    private volatile int y;
 
     public PointLight(Color color, double strength, int radius, int x, int y) {
         this.color = color;
@@ -16,16 +19,145 @@ public class PointLight extends Light {
     }
 
     @Override
-    public Color getLight(int x, int y) {
-        double distance = Math.sqrt(Math.pow(this.x - x, 2) + Math.pow(this.y - y, 2));
-        if (distance > radius) {
-            return Color.BLACK;
+    public int getLightRGB(int x, int y) {
+        Color color = this.color;
+        return getLightRGB(x, y, color.getRed(), color.getGreen(), color.getBlue(), strength);
+    }
+
+    /**
+     * Returns the light this point light would emit at the given coordinates with the given color and strength.
+     */
+    protected int getLightRGB(int x, int y, int red, int green, int blue, double strength) {
+        long dx = this.x - x;
+        long dy = this.y - y;
+        return getLightRGB(dx * dx + dy * dy, radius, red, green, blue, strength);
+    }
+
+    @Override
+    public void getLightRow(int x, int y, int step, int length, int[] row, int offset) {
+        Color color = this.color;
+        getLightRow(x, y, step, length, row, offset, color.getRed(), color.getGreen(), color.getBlue(), strength);
+    }
+
+    /**
+     * Fills a span of one row with the light this point light would emit with the given color and strength.
+     */
+    protected void getLightRow(int x, int y, int step, int length, int[] row, int offset,
+                               int red, int green, int blue, double strength) {
+        fillRow(this.x, this.y, radius, x, y, step, length, row, offset, red, green, blue, strength);
+    }
+
+    @Override
+    protected void getStampRow(Object key, Rectangle bounds, int x, int y, int step, int length, int[] row,
+                               int offset) {
+        // The key holds everything but the position, the center is at (radius, radius) of the bounds
+        StampKey stampKey = (StampKey) key;
+        int radius = stampKey.radius();
+        int rgb = stampKey.rgb();
+        fillRow(radius, radius, radius, x, y, step, length, row, offset,
+                rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF, stampKey.strength());
+    }
+
+    /**
+     * Fills a span of one row with the light of a point light with the given radius centered at (centerX, centerY).
+     */
+    private static void fillRow(int centerX, int centerY, int radius, int x, int y, int step, int length, int[] row,
+                                int offset, int red, int green, int blue, double strength) {
+        long dy = centerY - y;
+        if (Math.abs(dy) > radius) {
+            Arrays.fill(row, offset, offset + length, 0);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            long dx = centerX - (x + (long) i * step);
+            row[offset + i] = getLightRGB(dx * dx + dy * dy, radius, red, green, blue, strength);
+        }
+    }
+
+    public void setPosition(int x, int y) {
+        if (this.x != x || this.y != y) {
+            this.x = x;
+            this.y = y;
+            changed();
+        }
+    }
+
+    public void setColor(Color color) {
+        if (!color.equals(this.color)) {
+            this.color = color;
+            changed();
+        }
+    }
+
+    public void setStrength(double strength) {
+        if (this.strength != strength) {
+            this.strength = strength;
+            changed();
+        }
+    }
+
+    public void setRadius(int radius) {
+        if (this.radius != radius) {
+            this.radius = radius;
+            changed();
+        }
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    @Override
+    public Rectangle getBounds() {
+        int radius = this.radius;
+        return new Rectangle(x - radius, y - radius, 2 * radius + 1, 2 * radius + 1);
+    }
+
+    @Override
+    public boolean hasBounds(Rectangle bounds) {
+        int radius = this.radius;
+        return bounds != null && bounds.x == x - radius && bounds.y == y - radius
+                && bounds.width == 2 * radius + 1 && bounds.height == 2 * radius + 1;
+    }
+
+    @Override
+    public Object getStampKey() {
+        return new StampKey(radius, color.getRGB() & 0xFFFFFF, strength);
+    }
+
+    @Override
+    public boolean hasStampKey(Object key) {
+        return key instanceof StampKey stampKey && stampKey.radius() == radius
+                && stampKey.rgb() == (color.getRGB() & 0xFFFFFF) && stampKey.strength() == strength;
+    }
+
+    /**
+     * Everything but the position that determines the light a PointLight emits
+     */
+    record StampKey(int radius, int rgb, double strength) {
+    }
+
+    /**
+     * Returns the light at the given squared distance from the center, as packed RGB.
+     */
+    private static int getLightRGB(long squaredDistance, int radius, int red, int green, int blue,
+                                   double strength) {
+        if (squaredDistance > (long) radius * radius) {
+            return 0;
         }
-        double factor = 1 - distance / radius;
-        return new Color(
-                (int) (color.getRed() * strength * factor),
-                (int) (color.getGreen() * strength * factor),
-                (int) (color.getBlue() * strength * factor)
+        double factor = 1 - Math.sqrt(squaredDistance) / radius;
+        return pack(
+                (int) (red * strength * factor),
+                (int) (green * strength * factor),
+                (int) (blue * strength * factor)
         );
     }
 }
@@ -0,0 +1,155 @@
+package general;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SweptCollisionTest class.
+ * Tests moving a 10x10 box through boxes with SweptCollision. Every test moves the box once and checks where it ends.
+ * <p>
+ * Runs without a test framework: prints the result of each test and exits with status 1 if any failed.
+ *
+ * @author Finn Kiesinger
+ */
+public class SweptCollisionTest {
+    private static final double EPSILON = 1e-9;
+    private static final int SIZE = 10;
+
+    private static final List<String> failures = new ArrayList<>();
+    private static int testCount = 0;
+
+    public static void main(String[] args) {
+        headOnHit();
+        tunnellingAtHighSpeed();
+        slideAlongWall();
+        touchingEdgeMovingIn();
+        touchingEdgeMovingAway();
+        grazingCorner();
+        exactCornerHit();
+        startingInsideMovingDeeper();
+        startingInsideMovingOut();
+        seamBetweenAdjacentBoxes();
+        zeroMovement();
+
+        System.out.printf("%d of %d tests passed%n", testCount - failures.size(), testCount);
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> System.out.println("FAILED: " + failure));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Moving straight into a box stops at its edge.
+     */
+    private static void headOnHit() {
+        SweptCollision solver = move(0, 0, 20, 0, new int[][]{{15, 0, 5, 10}});
+        check("head-on hit", solver, 5, 0, true);
+    }
+
+    /**
+     * A move much longer than the box is wide does not pass through a thin wall.
+     */
+    private static void tunnellingAtHighSpeed() {
+        SweptCollision solver = move(0, 0, 1000, 0, new int[][]{{100, -50, 1, 100}});
+        check("tunnelling at high speed", solver, 90, 0, true);
+    }
+
+    /**
+     * Moving diagonally into a wall keeps the movement along it.
+     */
+    private static void slideAlongWall() {
+        SweptCollision solver = move(0, 0, 20, 20, new int[][]{{15, -100, 5, 300}});
+        check("slide along a wall", solver, 5, 20, true);
+    }
+
+    /**
+     * A box touching another box cannot move into it.
+     */
+    private static void touchingEdgeMovingIn() {
+        SweptCollision solver = move(5, 0, 3, 0, new int[][]{{15, 0, 5, 10}});
+        check("touching an edge, moving in", solver, 5, 0, true);
+    }
+
+    /**
+     * A box touching another box can move away from it.
+     */
+    private static void touchingEdgeMovingAway() {
+        SweptCollision solver = move(5, 0, -3, 0, new int[][]{{15, 0, 5, 10}});
+        check("touching an edge, moving away", solver, 2, 0, false);
+    }
+
+    /**
+     * Ending exactly at the corner of a box only touches it.
+     */
+    private static void grazingCorner() {
+        SweptCollision solver = move(0, 0, 10, 10, new int[][]{{20, 20, 5, 5}});
+        check("grazing a corner", solver, 10, 10, false);
+    }
+
+    /**
+     * Hitting the corner of a box exactly stops on one axis and slides along the other.
+     */
+    private static void exactCornerHit() {
+        SweptCollision solver = move(0, 0, 20, 20, new int[][]{{15, 15, 5, 5}});
+        check("exact corner hit", solver, 5, 20, true);
+    }
+
+    /**
+     * A box that starts inside another box cannot move further into it.
+     */
+    private static void startingInsideMovingDeeper() {
+        SweptCollision solver = move(12, 0, 5, 0, new int[][]{{15, 0, 50, 10}});
+        check("starting inside, moving deeper", solver, 12, 0, true);
+    }
+
+    /**
+     * A box that starts inside another box can move out of it.
+     */
+    private static void startingInsideMovingOut() {
+        SweptCollision solver = move(12, 0, -5, 0, new int[][]{{15, 0, 50, 10}});
+        check("starting inside, moving out", solver, 7, 0, false);
+    }
+
+    /**
+     * Moving along two adjacent boxes does not catch on the seam between them.
+     */
+    private static void seamBetweenAdjacentBoxes() {
+        SweptCollision solver = move(0, 0, 20, 0, new int[][]{{-50, 10, 50, 5}, {0, 10, 50, 5}});
+        check("seam between two boxes", solver, 20, 0, false);
+    }
+
+    /**
+     * Not moving leaves the box where it is, even next to another box.
+     */
+    private static void zeroMovement() {
+        SweptCollision solver = move(0, 0, 0, 0, new int[][]{{5, 5, 10, 10}});
+        check("zero movement", solver, 0, 0, false);
+    }
+
+    /**
+     * Moves a 10x10 box through the given boxes, testing all of them in every pass.
+     *
+     * @param boxes boxes as x, y, width and height
+     */
+    private static SweptCollision move(double x, double y, double dx, double dy, int[][] boxes) {
+        SweptCollision solver = new SweptCollision();
+        solver.begin(x, y, SIZE, SIZE, dx, dy);
+        do {
+            for (int[] box : boxes) {
+                solver.test(box[0], box[1], box[2], box[3]);
+            }
+        } while (solver.slide());
+        return solver;
+    }
+
+    private static void check(String name, SweptCollision solver, double x, double y, boolean hit) {
+        testCount++;
+        if (Math.abs(solver.getX() - x) > EPSILON || Math.abs(solver.getY() - y) > EPSILON) {
+            failures.add(String.format("%s: ended at (%s, %s), expected (%s, %s)", name, solver.getX(), solver.getY(), x, y));
+        } else if (solver.hasHit() != hit) {
+            failures.add(String.format("%s: hit was %s, expected %s", name, solver.hasHit(), hit));
+        } else {
+            System.out.println("passed: " + name);
+        }
+    }
+}